@@ -0,0 +1,379 @@
+package ai;
+
+import java.util.Arrays;
+
+import game.BoardState;
+import game.GameMaster;
+import game.Move;
+import game.MoveList;
+import game.Turn;
+import game.Zobrist;
+import graph.DistanceTable;
+import main.Main;
+import player.MrX;
+import player.Person;
+import player.Person.Ticket;
+
+/**
+ * Class to represent an AI
+ * Implement AI interface
+ *
+ * This class decides where MrX goes by alpha-beta search that knows where
+ * everybody is, with the five detectives playing together against MrX
+ * (paranoid minimax). The search goes one turn deeper each time
+ * (iterative deepening) until the time runs out or the search reaches its
+ * largest depth, and MrX takes the best move of the deepest search that was
+ * finished.
+ *
+ * Searched positions are kept in a transposition table of a fixed size, with
+ * two entries for each Zobrist hash (see {@link BoardState#getHash()}). A
+ * new result replaces the entry of an older move or the one that was searched
+ * less deep. The best move of a stored position is tried first, then the
+ * moves of MrX that end far from the detectives and the moves of detectives
+ * that end close to MrX.
+ *
+ * Positions are scored for MrX by the distance of the closest detective and
+ * the sum of the distances of all detectives, counted in turns of the
+ * transportation each detective still has tickets for.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class AlphaBetaAI implements AI {
+
+	// default time for one move
+	public static final long DEFAULT_MILLIS = 1000;
+	// default number of entries of the transposition table
+	public static final int DEFAULT_TABLE_SIZE = 1 << 18;
+
+	private static final int MAX_DEPTH = 64;
+	private static final int WIN = 1000000;
+	private static final int INFINITY = 2 * WIN;
+	// distances are counted up to this number of turns
+	private static final int MAX_DISTANCE = 10;
+	// number of positions between looking at the clock
+	private static final int CHECK_INTERVAL = 1024;
+	private static final long NO_MOVE = 0;
+
+	// kinds of bounds in the transposition table
+	private static final byte EXACT = 1;
+	private static final byte LOWER = 2;
+	private static final byte UPPER = 3;
+
+	GameMaster gmCopy;
+	MrX mrx;
+	private final long millis;
+	private final int maxDepth;
+	private final int tableMask;
+
+	// transposition table: two entries from every even index
+	private long[] keys;
+	private long[] bestMoves;
+	private int[] scores;
+	private byte[] depths;
+	private byte[] bounds;
+	private byte[] ages;
+	private byte age;
+
+	// state of the current search
+	private GameMaster gm;
+	private DistanceTable table;
+	private long deadline;
+	private long nodes;
+	private boolean aborted;
+	private long rootMove;
+	private final MoveList[] lists = new MoveList[MAX_DEPTH + 1];
+	private long[][] order = new long[MAX_DEPTH + 1][64];
+
+	public AlphaBetaAI(MrX mrx) {
+		this(mrx, DEFAULT_MILLIS, DEFAULT_TABLE_SIZE);
+	}
+
+	public AlphaBetaAI(MrX mrx, long millis, int tableSize) {
+		this(mrx, millis, MAX_DEPTH, tableSize);
+	}
+
+	/**
+	 * Create an AI with the given budget for each move.
+	 *
+	 * @param mrx
+	 * @param millis
+	 *            time for one move, or {@link MctsAI#NO_TIME_LIMIT} to stop
+	 *            only at the given depth
+	 * @param maxDepth
+	 *            largest number of turns to search, from 1 to 64
+	 * @param tableSize
+	 *            number of entries of the transposition table, rounded up to
+	 *            a power of two
+	 */
+	public AlphaBetaAI(MrX mrx, long millis, int maxDepth, int tableSize) {
+		if (maxDepth < 1 || maxDepth > MAX_DEPTH)
+			throw new IllegalArgumentException("depth out of range: " + maxDepth);
+		this.mrx = mrx;
+		this.millis = millis;
+		this.maxDepth = maxDepth;
+		int size = Math.max(2, Integer.highestOneBit(Math.max(1, tableSize - 1)) << 1);
+		this.tableMask = size - 1;
+		for (int i = 0; i <= MAX_DEPTH; i++) {
+			lists[i] = new MoveList();
+		}
+	}
+
+	public void update(GameMaster g) {
+		gmCopy = g;
+	}
+
+	public void decide() throws Exception {
+		MoveList moves = new MoveList();
+		int n = gmCopy.generateMoves(moves);
+		// special case no move - throw exception
+		if (n == 0)
+			throw new Exception();
+		if (n == 1) {
+			mrx.play(moves.get(0));
+			return;
+		}
+		mrx.play(search());
+	}
+
+	/**
+	 * Search the current game until the time runs out or the largest depth is
+	 * finished, and return the best move of MrX found.
+	 *
+	 * @return packed move (see {@link Move})
+	 */
+	long search() {
+		if (keys == null) {
+			int size = tableMask + 1;
+			keys = new long[size];
+			bestMoves = new long[size];
+			scores = new int[size];
+			depths = new byte[size];
+			bounds = new byte[size];
+			ages = new byte[size];
+		}
+		age++;
+		gm = new GameMaster(gmCopy);
+		table = gm.getState().getGraph().getDistanceTable();
+		deadline = MctsAI.deadline(millis);
+		nodes = 0;
+		aborted = false;
+
+		long retVal = NO_MOVE;
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			search(depth, 0, -INFINITY, INFINITY);
+			if (aborted)
+				break;
+			retVal = rootMove;
+			if (Main.DEBUG)
+				System.out.println("depth " + depth + ": " + Move.toString(retVal) + ", " + nodes + " positions");
+		}
+		// not even the first search was finished
+		if (retVal == NO_MOVE) {
+			MoveList moves = lists[0];
+			gm.generateMoves(moves);
+			orderMoves(moves, moves.size(), NO_MOVE, true, 0);
+			retVal = moves.get(0);
+		}
+		gm = null;
+		return retVal;
+	}
+
+	// recursive method, returns the score for MrX
+	private int search(int depth, int ply, int alpha, int beta) {
+		if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline)
+			aborted = true;
+		if (aborted)
+			return 0;
+		Person winner = gm.checkWinner();
+		if (winner != null)
+			return winner == gm.getMrx() ? WIN - ply : -WIN + ply;
+		if (depth == 0 || ply == MAX_DEPTH)
+			return evaluate();
+
+		long key = hash();
+		int slot = probe(key);
+		long ttMove = NO_MOVE;
+		if (slot >= 0) {
+			ttMove = bestMoves[slot];
+			// the root is always searched, so that it has a best move
+			if (ply > 0 && depths[slot] >= depth) {
+				int s = fromTable(scores[slot], ply);
+				if (bounds[slot] == EXACT)
+					return s;
+				if (bounds[slot] == LOWER)
+					alpha = Math.max(alpha, s);
+				else
+					beta = Math.min(beta, s);
+				if (alpha >= beta)
+					return s;
+			}
+		}
+
+		MoveList moves = lists[ply];
+		int n = gm.generateMoves(moves);
+		if (n == 0) {
+			// a detective who cannot move passes
+			gm.makePass();
+			int retVal = search(depth - 1, ply + 1, alpha, beta);
+			gm.unmakeMove();
+			return retVal;
+		}
+		boolean maximize = gm.getTurn() == Turn.MrX;
+		orderMoves(moves, n, ttMove, maximize, ply);
+
+		int alpha0 = alpha;
+		int beta0 = beta;
+		int best = maximize ? -INFINITY : INFINITY;
+		long bestMove = NO_MOVE;
+		for (int i = 0; i < n; i++) {
+			long m = moves.get(i);
+			gm.makeMove(m);
+			int s = search(depth - 1, ply + 1, alpha, beta);
+			gm.unmakeMove();
+			if (aborted)
+				return 0;
+			if (maximize ? s > best : s < best) {
+				best = s;
+				bestMove = m;
+			}
+			if (maximize)
+				alpha = Math.max(alpha, s);
+			else
+				beta = Math.min(beta, s);
+			if (alpha >= beta)
+				break;
+		}
+
+		if (ply == 0)
+			rootMove = bestMove;
+		byte bound = best <= alpha0 ? UPPER : best >= beta0 ? LOWER : EXACT;
+		store(key, depth, toTable(best, ply), bound, bestMove);
+		return best;
+	}
+
+	/**
+	 * Return the score of the current game for MrX, higher when the
+	 * detectives are far away.
+	 *
+	 * @return score
+	 */
+	private int evaluate() {
+		BoardState state = gm.getState();
+		int target = state.getPosition(BoardState.MRX);
+		int min = MAX_DISTANCE;
+		int sum = 0;
+		for (int d = 0; d < BoardState.NUM_DETECTIVES; d++) {
+			int dist = distanceToMrX(state, d, state.getPosition(d), target);
+			min = Math.min(min, dist);
+			sum += dist;
+		}
+		return 100 * min + 10 * sum + 5 * (state.getTicket(BoardState.MRX, Ticket.BLACK)
+				+ state.getTicket(BoardState.MRX, Ticket.DOUBLE));
+	}
+
+	// helper method to get the distance of a detective, counted up to
+	// MAX_DISTANCE
+	private int distanceToMrX(BoardState state, int detective, int from, int target) {
+		int transports = state.transportsFor(detective);
+		if (transports == 0)
+			return MAX_DISTANCE;
+		return Math.min(MAX_DISTANCE, table.distance(from, target, transports));
+	}
+
+	// helper method to sort the moves, best first
+	private void orderMoves(MoveList moves, int n, long ttMove, boolean maximize, int ply) {
+		if (order[ply].length < n)
+			order[ply] = new long[n * 2];
+		long[] sorted = order[ply];
+		BoardState state = gm.getState();
+		int player = maximize ? BoardState.MRX : gm.getTurn().NUM;
+		int target = state.getPosition(BoardState.MRX);
+		for (int i = 0; i < n; i++) {
+			long m = moves.get(i);
+			int to = Move.destination(m);
+			int value;
+			if (m == ttMove) {
+				value = Integer.MAX_VALUE;
+			} else if (maximize) {
+				int min = MAX_DISTANCE;
+				for (int d = 0; d < BoardState.NUM_DETECTIVES; d++) {
+					min = Math.min(min, distanceToMrX(state, d, state.getPosition(d), to));
+				}
+				// save double moves and black tickets for when they are needed
+				value = 16 * min - (Move.isDouble(m) ? 8 : 0) - (Move.firstTicket(m) == Ticket.BLACK ? 4 : 0);
+			} else {
+				value = -distanceToMrX(state, player, to, target);
+			}
+			// higher values first, and the generated order for the same value
+			sorted[i] = (long) -value << 32 | i;
+		}
+		Arrays.sort(sorted, 0, n);
+		for (int i = 0; i < n; i++) {
+			sorted[i] = moves.get((int) sorted[i]);
+		}
+		for (int i = 0; i < n; i++) {
+			moves.set(i, sorted[i]);
+		}
+	}
+
+	// helper method to get the hash of the current position
+	private long hash() {
+		return gm.getState().getHash() ^ Zobrist.turnKey(gm.getTurn());
+	}
+
+	// helper method to find the entry of the given hash, or -1
+	private int probe(long key) {
+		int i = (int) key & tableMask & ~1;
+		if (keys[i] == key && bounds[i] != 0)
+			return i;
+		if (keys[i + 1] == key && bounds[i + 1] != 0)
+			return i + 1;
+		return -1;
+	}
+
+	// helper method to keep a result, replacing the same position, an empty
+	// entry, an entry of an older move, or the one that was searched less deep
+	private void store(long key, int depth, int score, byte bound, long move) {
+		int i = (int) key & tableMask & ~1;
+		int slot;
+		if (keys[i] == key || bounds[i] == 0)
+			slot = i;
+		else if (keys[i + 1] == key || bounds[i + 1] == 0)
+			slot = i + 1;
+		else if (ages[i] != age)
+			slot = i;
+		else if (ages[i + 1] != age)
+			slot = i + 1;
+		else
+			slot = depths[i] <= depths[i + 1] ? i : i + 1;
+		// do not lose a deeper result of the same position
+		if (keys[slot] == key && bounds[slot] != 0 && ages[slot] == age && depths[slot] > depth)
+			return;
+		keys[slot] = key;
+		bestMoves[slot] = move;
+		scores[slot] = score;
+		depths[slot] = (byte) depth;
+		bounds[slot] = bound;
+		ages[slot] = age;
+	}
+
+	// scores of a won game are stored as the distance from the position, not
+	// from the root, so that they can be used at any ply
+	private static int toTable(int score, int ply) {
+		if (score > WIN - MAX_DEPTH * 2)
+			return score + ply;
+		if (score < -WIN + MAX_DEPTH * 2)
+			return score - ply;
+		return score;
+	}
+
+	private static int fromTable(int score, int ply) {
+		if (score > WIN - MAX_DEPTH * 2)
+			return score - ply;
+		if (score < -WIN + MAX_DEPTH * 2)
+			return score + ply;
+		return score;
+	}
+
+}
@@ -0,0 +1,93 @@
+package ai;
+
+import java.util.Arrays;
+
+/**
+ * Class to solve the assignment problem: given the cost of giving each job
+ * to each worker, give every worker a different job so that the total cost
+ * is the smallest (Hungarian algorithm with potentials, O(n^2 m) time for n
+ * workers and m jobs).
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class Assignment {
+
+	private Assignment() {
+	}
+
+	/**
+	 * Return the job of each worker that makes the total cost the smallest.
+	 *
+	 * @param cost
+	 *            cost[i][j] is the cost of giving job j to worker i, with at
+	 *            least as many jobs as workers
+	 * @return job of each worker
+	 * @throws IllegalArgumentException
+	 *             if there are fewer jobs than workers
+	 */
+	public static int[] solve(int[][] cost) {
+		int n = cost.length;
+		if (n == 0)
+			return new int[0];
+		int m = cost[0].length;
+		if (m < n)
+			throw new IllegalArgumentException("fewer jobs than workers: " + m + " < " + n);
+
+		// everything is counted from 1, and job 0 holds the worker being added
+		long[] u = new long[n + 1];
+		long[] v = new long[m + 1];
+		int[] worker = new int[m + 1];
+		int[] way = new int[m + 1];
+		long[] minSlack = new long[m + 1];
+		boolean[] used = new boolean[m + 1];
+		for (int i = 1; i <= n; i++) {
+			worker[0] = i;
+			int j0 = 0;
+			Arrays.fill(minSlack, Long.MAX_VALUE);
+			Arrays.fill(used, false);
+			do {
+				used[j0] = true;
+				int i0 = worker[j0];
+				long delta = Long.MAX_VALUE;
+				int j1 = 0;
+				for (int j = 1; j <= m; j++) {
+					if (used[j])
+						continue;
+					long slack = cost[i0 - 1][j - 1] - u[i0] - v[j];
+					if (slack < minSlack[j]) {
+						minSlack[j] = slack;
+						way[j] = j0;
+					}
+					if (minSlack[j] < delta) {
+						delta = minSlack[j];
+						j1 = j;
+					}
+				}
+				for (int j = 0; j <= m; j++) {
+					if (used[j]) {
+						u[worker[j]] += delta;
+						v[j] -= delta;
+					} else {
+						minSlack[j] -= delta;
+					}
+				}
+				j0 = j1;
+			} while (worker[j0] != 0);
+			// flip the augmenting path
+			do {
+				int j1 = way[j0];
+				worker[j0] = worker[j1];
+				j0 = j1;
+			} while (j0 != 0);
+		}
+
+		int[] retVal = new int[n];
+		for (int j = 1; j <= m; j++) {
+			if (worker[j] != 0)
+				retVal[worker[j] - 1] = j - 1;
+		}
+		return retVal;
+	}
+
+}
@@ -0,0 +1,231 @@
+package ai;
+
+import game.BoardState;
+import game.CandidateTracker;
+import game.GameMaster;
+import game.Move;
+import game.MoveList;
+import graph.Board;
+import graph.DistanceTable;
+import player.Detective;
+import player.Person.Ticket;
+
+/**
+ * Class to represent an AI for a detective
+ * Implement AI interface
+ *
+ * This class makes the detectives cover the area where MrX could be (see
+ * {@link CandidateTracker}) together. Up to five locations spread over the
+ * area are picked as targets, each one as far from the others as possible,
+ * and the detectives are given different targets so that the sum of their
+ * distances is the smallest ({@link Assignment}). The detective then takes
+ * the move that brings him closest to his own target.
+ *
+ * Distances come from the {@link DistanceTable} with only the types of
+ * transportation the detective has tickets for, and a target further away
+ * than the number of tickets he has left cannot be given to him. When the
+ * area is small, the locations MrX can reach from it in one move are added,
+ * so that the detectives close in around it.
+ *
+ * Solving the assignment takes microseconds, so every detective solves it
+ * again on his turn with the positions the detectives before him moved to.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class AssignmentDetectiveAI implements AI {
+
+	// cost of a target a detective cannot reach
+	private static final int INFEASIBLE = 1000;
+
+	GameMaster gmCopy;
+	Detective detective;
+	private CandidateTracker tracker;
+	private DistanceTable table;
+	private int[] pool;
+	private boolean[] inPool;
+
+	public AssignmentDetectiveAI(Detective detective) {
+		this.detective = detective;
+	}
+
+	public void update(GameMaster g) {
+		if (tracker == null || g != gmCopy) {
+			tracker = new CandidateTracker(g.getState().getGraph());
+			tracker.reset(g);
+			table = g.getState().getGraph().getDistanceTable();
+			int numNodes = g.getState().getBoard().getNumOfNodes();
+			pool = new int[numNodes];
+			inPool = new boolean[numNodes + 1];
+		}
+		gmCopy = g;
+		tracker.update(g);
+	}
+
+	public void decide() throws Exception {
+		MoveList moves = new MoveList();
+		int n = gmCopy.generateMoves(moves);
+		// special case no move - throw exception
+		if (n == 0)
+			throw new Exception();
+		int target = target();
+		BoardState state = gmCopy.getState();
+		int me = detective.getIndex();
+
+		long best = moves.get(0);
+		int bestDist = Integer.MAX_VALUE;
+		int bestLeft = -1;
+		for (int i = 0; i < n; i++) {
+			long m = moves.get(i);
+			Ticket t = Move.firstTicket(m);
+			int left = state.getTicket(me, t) - 1;
+			int transports = state.transportsFor(me) & ~(left == 0 ? 1 << t.ordinal() : 0);
+			int dist = transports == 0 ? DistanceTable.UNREACHABLE
+					: table.distance(Move.destination(m), target, transports);
+			// keep the tickets he has few of
+			if (dist < bestDist || (dist == bestDist && left > bestLeft)) {
+				best = m;
+				bestDist = dist;
+				bestLeft = left;
+			}
+		}
+		detective.moveTo(Move.firstDestination(best), Move.firstTicket(best), gmCopy.getMrx());
+	}
+
+	/**
+	 * Solve the assignment of all detectives who can move and return the
+	 * target of this detective.
+	 *
+	 * @return location id
+	 */
+	int target() {
+		BoardState state = gmCopy.getState();
+		int size = fillPool(state);
+		int[] targets = spread(size, Math.min(size, BoardState.NUM_DETECTIVES));
+
+		int[] rows = new int[BoardState.NUM_DETECTIVES];
+		int numRows = 0;
+		int me = -1;
+		for (int d = 0; d < BoardState.NUM_DETECTIVES; d++) {
+			if (state.transportsFor(d) == 0 && d != detective.getIndex())
+				continue;
+			if (d == detective.getIndex())
+				me = numRows;
+			rows[numRows++] = d;
+		}
+		// detectives left over without a target get a free dummy target
+		int numCols = Math.max(numRows, targets.length);
+		int[][] cost = new int[numRows][numCols];
+		for (int r = 0; r < numRows; r++) {
+			for (int c = 0; c < targets.length; c++) {
+				cost[r][c] = cost(state, rows[r], targets[c]);
+			}
+		}
+		int col = Assignment.solve(cost)[me];
+		if (col < targets.length && cost[me][col] < INFEASIBLE)
+			return targets[col];
+
+		// go to the nearest location of the area instead
+		int retVal = pool[0];
+		for (int i = 1; i < size; i++) {
+			if (cost(state, detective.getIndex(), pool[i]) < cost(state, detective.getIndex(), retVal))
+				retVal = pool[i];
+		}
+		return retVal;
+	}
+
+	// helper method to get the distance of a detective to a target using
+	// only the types of transportation he has tickets for, or INFEASIBLE if
+	// he cannot get there with them or has fewer tickets than moves
+	private int cost(BoardState state, int d, int target) {
+		int transports = state.transportsFor(d);
+		if (transports == 0)
+			return INFEASIBLE;
+		int dist = table.distance(state.getPosition(d), target, transports);
+		if (dist == DistanceTable.UNREACHABLE)
+			return INFEASIBLE;
+		int tickets = state.getTicket(d, Ticket.TAXI) + state.getTicket(d, Ticket.BUS)
+				+ state.getTicket(d, Ticket.UNDERGROUND);
+		return dist > tickets ? INFEASIBLE : dist;
+	}
+
+	// helper method to put the locations to cover in the pool, and return
+	// how many there are
+	private int fillPool(BoardState state) {
+		int size = 0;
+		for (int id = tracker.nextCandidate(0); id >= 0; id = tracker.nextCandidate(id + 1)) {
+			pool[size++] = id;
+		}
+		if (size > BoardState.NUM_DETECTIVES)
+			return size;
+
+		// add where MrX can go next
+		for (int i = 0; i < size; i++) {
+			inPool[pool[i]] = true;
+		}
+		Board board = state.getBoard();
+		int transports = state.transportsFor(BoardState.MRX);
+		int numCandidates = size;
+		for (int i = 0; i < numCandidates; i++) {
+			for (int e = board.edgeStart(pool[i]); e < board.edgeEnd(pool[i]); e++) {
+				int t = board.target(e);
+				if ((board.transport(e) & transports) != 0 && !inPool[t] && !state.isOccupied(t)) {
+					inPool[t] = true;
+					pool[size++] = t;
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			inPool[pool[i]] = false;
+		}
+		return size;
+	}
+
+	/**
+	 * Pick k locations of the pool that are far from each other: the first
+	 * is the one closest to all the others, and each next one is the one
+	 * furthest from those already picked.
+	 *
+	 * @param size
+	 *            number of locations in the pool
+	 * @param k
+	 * @return locations
+	 */
+	private int[] spread(int size, int k) {
+		int[] retVal = new int[k];
+		if (k == 0)
+			return retVal;
+		int first = 0;
+		long bestSum = Long.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			long sum = 0;
+			for (int j = 0; j < size; j++) {
+				sum += table.distance(pool[i], pool[j]);
+			}
+			if (sum < bestSum) {
+				bestSum = sum;
+				first = i;
+			}
+		}
+		retVal[0] = pool[first];
+
+		// distance of each location of the pool to the nearest picked one
+		int[] nearest = new int[size];
+		for (int i = 0; i < size; i++) {
+			nearest[i] = table.distance(retVal[0], pool[i]);
+		}
+		for (int p = 1; p < k; p++) {
+			int next = 0;
+			for (int i = 1; i < size; i++) {
+				if (nearest[i] > nearest[next])
+					next = i;
+			}
+			retVal[p] = pool[next];
+			for (int i = 0; i < size; i++) {
+				nearest[i] = Math.min(nearest[i], table.distance(pool[next], pool[i]));
+			}
+		}
+		return retVal;
+	}
+
+}
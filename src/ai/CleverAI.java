@@ -2,6 +2,7 @@ package ai;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -27,11 +28,16 @@ public class CleverAI extends RandomAI{
 		super(mrx);
 	}
 
+	public CleverAI(MrX mrx, Random random) {
+		super(mrx, random);
+	}
+
 	@Override
 	public void decide() throws Exception {
+		// start from the places MrX can actually go with his tickets
 		List<Node> list = new ArrayList<Node>();
 		List<Node> pureList = new ArrayList<Node>();
-		for (Node n : mrx.getPosition().getNeighbors()) {
+		for (Node n : mrx.possibleMoves()) {
 			list.add(n);
 			pureList.add(n);
 			//test message
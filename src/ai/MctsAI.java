@@ -0,0 +1,280 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import game.GameMaster;
+import game.MoveList;
+import game.Turn;
+import player.MrX;
+
+/**
+ * Class to represent an AI
+ * Implement AI interface
+ *
+ * This class decides where MrX goes by Monte Carlo tree search (UCT). Every
+ * thread grows its own tree on its own copy of the game, finishing each
+ * iteration with a random playout until somebody wins, and MrX takes the
+ * move that was visited the most over all of the trees (root parallelism).
+ * The search stops when the time or the number of iterations runs out.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class MctsAI implements AI {
+
+	// default time for one move
+	public static final long DEFAULT_MILLIS = 1000;
+	// time for one move of a search that only stops after its iterations,
+	// so that it makes the same moves however busy the machine is
+	public static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+	// weight of exploration in UCT, for rewards between 0 and 1
+	private static final double EXPLORATION = 0.7;
+	// move of a detective who cannot move
+	private static final long PASS = -1;
+
+	// threads shared by every MctsAI and MctsDetectiveAI, so that playing
+	// many games does not start new threads for every move
+	static final ExecutorService WORKERS = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "mcts");
+		t.setDaemon(true);
+		return t;
+	});
+
+	GameMaster gmCopy;
+	MrX mrx;
+	private final long millis;
+	private final int iterations;
+	private final int threads;
+	private final Random random;
+
+	public MctsAI(MrX mrx) {
+		this(mrx, new Random());
+	}
+
+	public MctsAI(MrX mrx, Random random) {
+		this(mrx, DEFAULT_MILLIS, Integer.MAX_VALUE, Runtime.getRuntime().availableProcessors(), random);
+	}
+
+	/**
+	 * Create an AI with the given budget for each move.
+	 *
+	 * @param mrx
+	 * @param millis
+	 *            time for one move, or NO_TIME_LIMIT
+	 * @param iterations
+	 *            number of iterations for one move over all threads
+	 * @param threads
+	 *            number of threads to search with
+	 * @param random
+	 */
+	public MctsAI(MrX mrx, long millis, int iterations, int threads, Random random) {
+		this.mrx = mrx;
+		this.millis = millis;
+		this.iterations = iterations;
+		this.threads = Math.max(1, threads);
+		this.random = random;
+	}
+
+	public void update(GameMaster g) {
+		gmCopy = g;
+	}
+
+	public void decide() throws Exception {
+		MoveList moves = new MoveList();
+		int n = gmCopy.generateMoves(moves);
+		// special case no move - throw exception
+		if (n == 0)
+			throw new Exception();
+		if (n == 1) {
+			mrx.play(moves.get(0));
+			return;
+		}
+
+		long deadline = deadline(millis);
+		List<Future<int[]>> futures = new ArrayList<Future<int[]>>();
+		for (int i = 1; i < threads; i++) {
+			Search s = new Search(new GameMaster(gmCopy), new Random(random.nextLong()), deadline,
+					share(i));
+			futures.add(WORKERS.submit(s::run));
+		}
+		int[] visits = new Search(new GameMaster(gmCopy), new Random(random.nextLong()), deadline, share(0)).run();
+		for (Future<int[]> f : futures) {
+			int[] v = f.get();
+			for (int i = 0; i < n; i++) {
+				visits[i] += v[i];
+			}
+		}
+
+		int best = 0;
+		for (int i = 1; i < n; i++) {
+			if (visits[i] > visits[best])
+				best = i;
+		}
+		mrx.play(moves.get(best));
+	}
+
+	// helper method to find when a search of the given time has to stop
+	static long deadline(long millis) {
+		if (millis == NO_TIME_LIMIT)
+			return Long.MAX_VALUE;
+		return System.nanoTime() + millis * 1000000;
+	}
+
+	// helper method to split the iterations between the threads
+	private int share(int thread) {
+		if (iterations == Integer.MAX_VALUE)
+			return iterations;
+		return iterations / threads + (thread < iterations % threads ? 1 : 0);
+	}
+
+	/**
+	 * Class to run the search of one thread on its own copy of the game
+	 *
+	 * The tree is kept in arrays: the children of a node are next to each
+	 * other from firstChild, and numChildren is -1 until the node is expanded.
+	 * wins is the number of playouts through the node that MrX won.
+	 *
+	 * @author Shogo Akiyama
+	 *
+	 */
+	private static class Search {
+		private final GameMaster gm;
+		private final Random random;
+		private final long deadline;
+		private final int iterations;
+		private final MoveList moves = new MoveList();
+
+		private long[] move = new long[4096];
+		private int[] firstChild = new int[4096];
+		private int[] numChildren = new int[4096];
+		private int[] visits = new int[4096];
+		private double[] wins = new double[4096];
+		private int size;
+		private int[] path = new int[256];
+
+		Search(GameMaster gm, Random random, long deadline, int iterations) {
+			this.gm = gm;
+			this.random = random;
+			this.deadline = deadline;
+			this.iterations = iterations;
+		}
+
+		// return the number of visits of each move of MrX
+		int[] run() {
+			int root = add(PASS);
+			expand(root);
+			for (int i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+				iterate(root);
+			}
+			int[] retVal = new int[numChildren[root]];
+			for (int i = 0; i < retVal.length; i++) {
+				retVal[i] = visits[firstChild[root] + i];
+			}
+			return retVal;
+		}
+
+		// one iteration: select, expand, play out and back up
+		private void iterate(int root) {
+			int node = root;
+			int depth = 0;
+			path[depth++] = node;
+			int made = 0;
+			while (gm.checkWinner() == null) {
+				if (numChildren[node] < 0) {
+					if (visits[node] == 0)
+						break;
+					expand(node);
+				}
+				node = select(node);
+				play(move[node]);
+				made++;
+				if (depth == path.length)
+					path = Arrays.copyOf(path, depth * 2);
+				path[depth++] = node;
+			}
+
+			// random playout
+			while (gm.checkWinner() == null) {
+				int n = gm.generateMoves(moves);
+				play(n == 0 ? PASS : moves.get(random.nextInt(n)));
+				made++;
+			}
+			double reward = gm.checkWinner() instanceof MrX ? 1 : 0;
+
+			for (int i = 0; i < depth; i++) {
+				visits[path[i]]++;
+				wins[path[i]] += reward;
+			}
+			for (int i = 0; i < made; i++) {
+				gm.unmakeMove();
+			}
+		}
+
+		// helper method to choose the child with the best UCT value for the
+		// player whose turn it is
+		private int select(int node) {
+			boolean mrxTurn = gm.getTurn() == Turn.MrX;
+			double logVisits = Math.log(visits[node]);
+			int best = -1;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int c = firstChild[node]; c < firstChild[node] + numChildren[node]; c++) {
+				if (visits[c] == 0)
+					return c;
+				double q = wins[c] / visits[c];
+				if (!mrxTurn)
+					q = 1 - q;
+				double value = q + EXPLORATION * Math.sqrt(logVisits / visits[c]);
+				if (value > bestValue) {
+					bestValue = value;
+					best = c;
+				}
+			}
+			return best;
+		}
+
+		// helper method to add the children of a node
+		private void expand(int node) {
+			int n = gm.generateMoves(moves);
+			int first = size;
+			if (n == 0) {
+				add(PASS);
+			} else {
+				for (int i = 0; i < n; i++) {
+					add(moves.get(i));
+				}
+			}
+			firstChild[node] = first;
+			numChildren[node] = size - first;
+		}
+
+		private int add(long m) {
+			if (size == move.length) {
+				int capacity = size * 2;
+				move = Arrays.copyOf(move, capacity);
+				firstChild = Arrays.copyOf(firstChild, capacity);
+				numChildren = Arrays.copyOf(numChildren, capacity);
+				visits = Arrays.copyOf(visits, capacity);
+				wins = Arrays.copyOf(wins, capacity);
+			}
+			move[size] = m;
+			numChildren[size] = -1;
+			visits[size] = 0;
+			wins[size] = 0;
+			return size++;
+		}
+
+		private void play(long m) {
+			if (m == PASS)
+				gm.makePass();
+			else
+				gm.makeMove(m);
+		}
+	}
+
+}
@@ -0,0 +1,357 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import game.BoardState;
+import game.CandidateTracker;
+import game.GameMaster;
+import game.Move;
+import game.MoveList;
+import game.Turn;
+import graph.DistanceTable;
+import player.Detective;
+import player.MrX;
+import player.Person;
+
+/**
+ * Class to represent an AI for a detective
+ * Implement AI interface
+ *
+ * This class decides where the detective goes by Monte Carlo tree search over
+ * the places MrX could be (determinized MCTS). Detectives do not know where
+ * MrX is, so every iteration puts him on one of the locations that fit his
+ * travel log and the rounds he showed up (see {@link CandidateTracker}), and
+ * the moves of the detectives do not depend on where he is, so all of the
+ * iterations share one tree.
+ *
+ * The tree holds the moves of this detective and of the detectives who move
+ * after him in the same round. From MrX's turn on, the game is played out
+ * for a few rounds: MrX runs from the closest detective, the detectives
+ * mostly walk towards MrX, and a game that is not over by then is scored by
+ * how close the detectives got. Like {@link MctsAI}, every thread grows its
+ * own tree and the visits of the moves are added up (root parallelism).
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class MctsDetectiveAI implements AI {
+
+	// default time for one move
+	public static final long DEFAULT_MILLIS = 200;
+	// weight of exploration in UCT, for rewards between 0 and 1
+	private static final double EXPLORATION = 0.7;
+	// move of a detective who cannot move
+	private static final long PASS = -1;
+	// number of turns played out after the tree
+	private static final int PLAYOUT_TURNS = 4 * Turn.values().length;
+	// distances are counted up to this number of turns
+	private static final int MAX_DISTANCE = 10;
+	// chance that a detective moves randomly in a playout
+	private static final double RANDOM_MOVE = 0.25;
+
+	GameMaster gmCopy;
+	Detective detective;
+	private final long millis;
+	private final int iterations;
+	private final int threads;
+	private final Random random;
+	private CandidateTracker tracker;
+
+	public MctsDetectiveAI(Detective detective) {
+		this(detective, new Random());
+	}
+
+	public MctsDetectiveAI(Detective detective, Random random) {
+		this(detective, DEFAULT_MILLIS, Integer.MAX_VALUE, Runtime.getRuntime().availableProcessors(), random);
+	}
+
+	/**
+	 * Create an AI with the given budget for each move.
+	 *
+	 * @param detective
+	 * @param millis
+	 *            time for one move, or {@link MctsAI#NO_TIME_LIMIT}
+	 * @param iterations
+	 *            number of iterations for one move over all threads
+	 * @param threads
+	 *            number of threads to search with
+	 * @param random
+	 */
+	public MctsDetectiveAI(Detective detective, long millis, int iterations, int threads, Random random) {
+		this.detective = detective;
+		this.millis = millis;
+		this.iterations = iterations;
+		this.threads = Math.max(1, threads);
+		this.random = random;
+	}
+
+	public void update(GameMaster g) {
+		if (tracker == null || g != gmCopy) {
+			tracker = new CandidateTracker(g.getState().getGraph());
+			tracker.reset(g);
+		}
+		gmCopy = g;
+		tracker.update(g);
+	}
+
+	public void decide() throws Exception {
+		MoveList moves = new MoveList();
+		int n = gmCopy.generateMoves(moves);
+		// special case no move - throw exception
+		if (n == 0)
+			throw new Exception();
+		int best = 0;
+		if (n > 1) {
+			int[] candidates = candidates();
+			long deadline = MctsAI.deadline(millis);
+			List<Future<int[]>> futures = new ArrayList<Future<int[]>>();
+			for (int i = 1; i < threads; i++) {
+				Search s = new Search(new GameMaster(gmCopy), candidates, new Random(random.nextLong()), deadline,
+						share(i));
+				futures.add(MctsAI.WORKERS.submit(s::run));
+			}
+			int[] visits = new Search(new GameMaster(gmCopy), candidates, new Random(random.nextLong()), deadline,
+					share(0)).run();
+			for (Future<int[]> f : futures) {
+				int[] v = f.get();
+				for (int i = 0; i < n; i++) {
+					visits[i] += v[i];
+				}
+			}
+			for (int i = 1; i < n; i++) {
+				if (visits[i] > visits[best])
+					best = i;
+			}
+		}
+		long m = moves.get(best);
+		detective.moveTo(Move.firstDestination(m), Move.firstTicket(m), gmCopy.getMrx());
+	}
+
+	// helper method to list the locations where MrX could be
+	private int[] candidates() {
+		int[] retVal = new int[tracker.size()];
+		int i = 0;
+		for (int id = tracker.nextCandidate(0); id >= 0; id = tracker.nextCandidate(id + 1)) {
+			retVal[i++] = id;
+		}
+		return retVal;
+	}
+
+	// helper method to split the iterations between the threads
+	private int share(int thread) {
+		if (iterations == Integer.MAX_VALUE)
+			return iterations;
+		return iterations / threads + (thread < iterations % threads ? 1 : 0);
+	}
+
+	/**
+	 * Class to run the search of one thread on its own copy of the game
+	 *
+	 * The tree is kept in arrays like in {@link MctsAI}. wins is the sum of
+	 * the rewards of the detectives.
+	 *
+	 * @author Shogo Akiyama
+	 *
+	 */
+	private static class Search {
+		private final GameMaster gm;
+		private final BoardState state;
+		private final DistanceTable table;
+		private final int[] candidates;
+		private final Random random;
+		private final long deadline;
+		private final int iterations;
+		private final MoveList moves = new MoveList();
+
+		private long[] move = new long[256];
+		private int[] firstChild = new int[256];
+		private int[] numChildren = new int[256];
+		private int[] visits = new int[256];
+		private double[] wins = new double[256];
+		private int size;
+		private final int[] path = new int[Turn.values().length + 1];
+
+		Search(GameMaster gm, int[] candidates, Random random, long deadline, int iterations) {
+			this.gm = gm;
+			this.state = gm.getState();
+			this.table = state.getGraph().getDistanceTable();
+			this.candidates = candidates;
+			this.random = random;
+			this.deadline = deadline;
+			this.iterations = iterations;
+		}
+
+		// return the number of visits of each move of the detective
+		int[] run() {
+			int root = add(PASS);
+			expand(root);
+			for (int i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+				state.setPosition(BoardState.MRX, candidates[random.nextInt(candidates.length)]);
+				iterate(root);
+			}
+			int[] retVal = new int[numChildren[root]];
+			for (int i = 0; i < retVal.length; i++) {
+				retVal[i] = visits[firstChild[root] + i];
+			}
+			return retVal;
+		}
+
+		// one iteration: select, expand, play out and back up
+		private void iterate(int root) {
+			int node = root;
+			int depth = 0;
+			path[depth++] = node;
+			int made = 0;
+			// the tree ends at MrX's turn
+			while (gm.getTurn() != Turn.MrX && gm.checkWinner() == null) {
+				if (numChildren[node] < 0) {
+					if (visits[node] == 0)
+						break;
+					expand(node);
+				}
+				node = select(node);
+				play(move[node]);
+				made++;
+				path[depth++] = node;
+			}
+
+			double reward;
+			for (int i = 0;; i++) {
+				Person winner = gm.checkWinner();
+				if (winner != null) {
+					reward = winner instanceof MrX ? 0 : 1;
+					break;
+				}
+				if (i == PLAYOUT_TURNS) {
+					reward = closeness();
+					break;
+				}
+				play(playoutMove());
+				made++;
+			}
+
+			for (int i = 0; i < depth; i++) {
+				visits[path[i]]++;
+				wins[path[i]] += reward;
+			}
+			for (int i = 0; i < made; i++) {
+				gm.unmakeMove();
+			}
+		}
+
+		// helper method to choose a move in a playout
+		private long playoutMove() {
+			int n = gm.generateMoves(moves);
+			if (n == 0)
+				return PASS;
+			boolean mrxTurn = gm.getTurn() == Turn.MrX;
+			if (!mrxTurn && random.nextDouble() < RANDOM_MOVE)
+				return moves.get(random.nextInt(n));
+			long best = moves.get(0);
+			int bestValue = Integer.MIN_VALUE;
+			if (mrxTurn) {
+				// MrX takes the better of two random moves
+				for (int i = 0; i < 2; i++) {
+					long m = moves.get(random.nextInt(n));
+					int value = nearest(Move.destination(m));
+					if (value > bestValue) {
+						bestValue = value;
+						best = m;
+					}
+				}
+			} else {
+				int player = gm.getTurn().NUM;
+				int target = state.getPosition(BoardState.MRX);
+				int transports = state.transportsFor(player);
+				for (int i = 0; i < n; i++) {
+					long m = moves.get(i);
+					int value = -table.distance(Move.destination(m), target, transports);
+					if (value > bestValue) {
+						bestValue = value;
+						best = m;
+					}
+				}
+			}
+			return best;
+		}
+
+		// helper method to get the distance of the closest detective to the
+		// given location
+		private int nearest(int to) {
+			int retVal = MAX_DISTANCE;
+			for (int d = 0; d < BoardState.NUM_DETECTIVES; d++) {
+				int transports = state.transportsFor(d);
+				if (transports != 0)
+					retVal = Math.min(retVal, table.distance(state.getPosition(d), to, transports));
+			}
+			return retVal;
+		}
+
+		// helper method to score a game that is not over, between 0 and 0.5
+		private double closeness() {
+			int dist = nearest(state.getPosition(BoardState.MRX));
+			return 0.5 * (MAX_DISTANCE - dist) / MAX_DISTANCE;
+		}
+
+		// helper method to choose the child with the best UCT value for the
+		// detectives
+		private int select(int node) {
+			double logVisits = Math.log(visits[node]);
+			int best = -1;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int c = firstChild[node]; c < firstChild[node] + numChildren[node]; c++) {
+				if (visits[c] == 0)
+					return c;
+				double value = wins[c] / visits[c] + EXPLORATION * Math.sqrt(logVisits / visits[c]);
+				if (value > bestValue) {
+					bestValue = value;
+					best = c;
+				}
+			}
+			return best;
+		}
+
+		// helper method to add the children of a node
+		private void expand(int node) {
+			int n = gm.generateMoves(moves);
+			int first = size;
+			if (n == 0) {
+				add(PASS);
+			} else {
+				for (int i = 0; i < n; i++) {
+					add(moves.get(i));
+				}
+			}
+			firstChild[node] = first;
+			numChildren[node] = size - first;
+		}
+
+		private int add(long m) {
+			if (size == move.length) {
+				int capacity = size * 2;
+				move = Arrays.copyOf(move, capacity);
+				firstChild = Arrays.copyOf(firstChild, capacity);
+				numChildren = Arrays.copyOf(numChildren, capacity);
+				visits = Arrays.copyOf(visits, capacity);
+				wins = Arrays.copyOf(wins, capacity);
+			}
+			move[size] = m;
+			numChildren[size] = -1;
+			visits[size] = 0;
+			wins[size] = 0;
+			return size++;
+		}
+
+		private void play(long m) {
+			if (m == PASS)
+				gm.makePass();
+			else
+				gm.makeMove(m);
+		}
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import game.BoardState;
 import game.GameMaster;
 import graph.Node;
 import player.MrX;
@@ -24,9 +25,15 @@ public class RandomAI implements AI {
 
 	GameMaster gmCopy;
 	MrX mrx;
+	Random random;
 	
 	public RandomAI(MrX mrx) {
+		this(mrx, new Random());
+	}
+
+	public RandomAI(MrX mrx, Random random) {
 		this.mrx=mrx;
+		this.random=random;
 	}
 
 	public void update(GameMaster g){
@@ -35,27 +42,28 @@ public class RandomAI implements AI {
 	
 	public void decide() throws Exception {
 		// create a list of the possible next positions
-		List<Node> nextNodeList = new ArrayList<Node>();
-		for (Node n : mrx.getPosition().getNeighbors()) {
-			nextNodeList.add(n);
+		Node position = mrx.getPosition();
+		List<Node> nextNodeList = new ArrayList<Node>(position.getNumOfNeighbors());
+		for (int i = 0; i < position.getNumOfNeighbors(); i++) {
+			nextNodeList.add(position.getNeighbor(i));
 		}
 		randomChoose(nextNodeList);
 	}
 
 	protected void randomChoose(List<Node> nextNodeList) throws Exception {
+		BoardState state = mrx.getState();
 		// decide where to go randomly
-		Random randomNode = new Random();
 		while (true) {
 			// special case list is empty - throw exception
 			if(nextNodeList.size()==0)
 				throw new Exception();
 
 			// decide where to go
-			int nodeIndex = randomNode.nextInt(nextNodeList.size());
+			int nodeIndex = random.nextInt(nextNodeList.size());
 			Node next = nextNodeList.get(nodeIndex);
 			// if that position is already occupied,
 			// remove that node from possible list and choose again
-			if (next.getOccupied()) {
+			if (state.isOccupied(state.getGraph().idOf(next))) {
 				nextNodeList.remove(next);
 				continue;
 			}
@@ -66,6 +74,9 @@ public class RandomAI implements AI {
 				if (mrx.hasTicket(Ticket.valueOf(way)))
 					wayList.add(way);
 			}
+			// a black ticket can be used for any way
+			if (wayList.size() == 0 && mrx.hasTicket(Ticket.BLACK))
+				wayList.add(Ticket.BLACK.name());
 			// if there is no ticket to go to that node,
 			// remove that node from possible list and choose again
 			if (wayList.size() == 0) {
@@ -74,8 +85,7 @@ public class RandomAI implements AI {
 			}
 
 			// decide which ticket (way) to use randomly
-			Random randomWay = new Random();
-			int wayIndex = randomWay.nextInt(wayList.size());
+			int wayIndex = random.nextInt(wayList.size());
 			mrx.useTicket(Ticket.valueOf(wayList.get(wayIndex)));
 			mrx.changePosition(next);
 			return;
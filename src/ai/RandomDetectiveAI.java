@@ -0,0 +1,58 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import game.GameMaster;
+import graph.Node;
+import player.Detective;
+import player.Person.Ticket;
+
+/**
+ * Class to represent an AI for a detective
+ * Implement AI interface
+ * 
+ * This class's decision making is based on random chance, among the places
+ * the detective can go with the tickets he has.
+ * 
+ * @author Shogo Akiyama
+ *
+ */
+public class RandomDetectiveAI implements AI {
+
+	GameMaster gmCopy;
+	Detective detective;
+	Random random;
+
+	public RandomDetectiveAI(Detective detective) {
+		this(detective, new Random());
+	}
+
+	public RandomDetectiveAI(Detective detective, Random random) {
+		this.detective = detective;
+		this.random = random;
+	}
+
+	public void update(GameMaster g) {
+		gmCopy = g;
+	}
+
+	public void decide() throws Exception {
+		List<Node> nextNodeList = new ArrayList<Node>(detective.possibleMoves());
+		// special case list is empty - throw exception
+		if (nextNodeList.size() == 0)
+			throw new Exception();
+		Node next = nextNodeList.get(random.nextInt(nextNodeList.size()));
+
+		// create a list of the possible ways to go to the next node
+		List<Ticket> wayList = new ArrayList<Ticket>();
+		for (String way : detective.getPosition().getWay(next)) {
+			Ticket t = Ticket.valueOf(way);
+			if (detective.hasTicket(t))
+				wayList.add(t);
+		}
+		detective.moveTo(next, wayList.get(random.nextInt(wayList.size())), gmCopy.getMrx());
+	}
+
+}
@@ -0,0 +1,315 @@
+package game;
+
+import graph.Board;
+import player.Person.Ticket;
+
+/**
+ * Class to hold everything of one game that changes while playing: where each
+ * player is, which locations are occupied by detectives, and how many tickets
+ * each player has left
+ *
+ * The board itself ({@link ScotlandYardGraph}) never changes, so any number of
+ * games can share it, each with its own BoardState of a few hundred bytes.
+ *
+ * Players are numbered 0 to 4 for the detectives (the same as
+ * {@link Turn#NUM}) and {@link #MRX} for MrX. Locations are the ids of the
+ * {@link Board}, and 0 means that the player is not on the board yet.
+ *
+ * Whether each player is stuck is also kept, so that {@link #getWinner()}
+ * does not have to look at every move of every player. A change only marks
+ * the players it can affect as dirty: the player who moved or whose tickets
+ * ran out or came back, and the players next to the locations a detective
+ * left or took. A dirty player is looked at again the next time it is asked
+ * about, so even the queries change the state and one state must not be
+ * used by two threads at the same time. The same changes also give the
+ * player a new {@link #getMovesVersion(int) version}, so that the possible
+ * moves of a {@link player.Person} can be kept until they change.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class BoardState {
+
+	public static final int NUM_DETECTIVES = 5;
+	public static final int MRX = NUM_DETECTIVES;
+	public static final int NUM_PLAYERS = NUM_DETECTIVES + 1;
+	public static final int NUM_TICKETS = Ticket.values().length;
+	// no player has won yet
+	public static final int NO_WINNER = -1;
+	// number of tickets that decide where a player can go, TAXI to BLACK
+	private static final int NUM_TRANSPORT_TICKETS = Ticket.DOUBLE.ordinal();
+
+	private final ScotlandYardGraph graph;
+	private final int[] positions;
+	// number of tickets t of player p is at p * NUM_TICKETS + t.ordinal()
+	private final int[] tickets;
+	// one bit per location, set if a detective is there
+	private final long[] occupied;
+	// Zobrist hash of the positions and tickets
+	private long hash;
+	// one bit per player, set if the player has no possible move
+	private int stuck;
+	// one bit per player, set if the bit of stuck may be out of date
+	private int dirty = (1 << NUM_PLAYERS) - 1;
+	// version of the possible moves of each player, from clock, so that no
+	// two versions of a state are the same
+	private final long[] movesVersions = new long[NUM_PLAYERS];
+	private long clock;
+
+	public BoardState(ScotlandYardGraph graph) {
+		this.graph = graph;
+		positions = new int[NUM_PLAYERS];
+		tickets = new int[NUM_PLAYERS * NUM_TICKETS];
+		occupied = new long[(graph.getBoard().getNumOfNodes() >>> 6) + 1];
+	}
+
+	/**
+	 * Create a copy of the given state on the same board.
+	 *
+	 * @param other
+	 */
+	public BoardState(BoardState other) {
+		this(other.graph);
+		copyFrom(other);
+	}
+
+	/**
+	 * Overwrite this state with the given state of the same board.
+	 *
+	 * @param other
+	 */
+	public void copyFrom(BoardState other) {
+		if (other.graph != graph)
+			throw new IllegalArgumentException("states of different boards");
+		System.arraycopy(other.positions, 0, positions, 0, NUM_PLAYERS);
+		System.arraycopy(other.tickets, 0, tickets, 0, tickets.length);
+		System.arraycopy(other.occupied, 0, occupied, 0, occupied.length);
+		hash = other.hash;
+		stuck = other.stuck;
+		dirty = other.dirty;
+		// versions of the other state mean nothing in this one
+		for (int p = 0; p < NUM_PLAYERS; p++) {
+			movesVersions[p] = ++clock;
+		}
+	}
+
+	// getter
+	public ScotlandYardGraph getGraph() {
+		return graph;
+	}
+
+	// getter
+	public Board getBoard() {
+		return graph.getBoard();
+	}
+
+	public int getPosition(int player) {
+		return positions[player];
+	}
+
+	/**
+	 * Put the player on the given location, and update which locations are
+	 * occupied if the player is a detective.
+	 *
+	 * @param player
+	 * @param id
+	 */
+	public void setPosition(int player, int id) {
+		invalidate(player);
+		if (player != MRX) {
+			int old = positions[player];
+			if (old != 0)
+				occupied[old >>> 6] &= ~(1L << old);
+			occupied[id >>> 6] |= 1L << id;
+			// the players next to either location may have gained or lost a
+			// move
+			Board board = graph.getBoard();
+			for (int p = 0; p < NUM_PLAYERS; p++) {
+				int at = positions[p];
+				if (p != player && at != 0 && ((old != 0 && board.hasEdge(at, old)) || board.hasEdge(at, id)))
+					invalidate(p);
+			}
+		}
+		hash ^= Zobrist.positionKey(player, positions[player]) ^ Zobrist.positionKey(player, id);
+		positions[player] = id;
+	}
+
+	/**
+	 * Put every player on the given locations at once, and make which
+	 * locations are occupied again from all of them. Unlike calling
+	 * {@link #setPosition(int, int)} for one player after another, a
+	 * detective can take a location another detective leaves.
+	 *
+	 * @param ids
+	 *            location of each player, indexed as the players
+	 */
+	public void setPositions(int[] ids) {
+		if (ids.length != NUM_PLAYERS)
+			throw new IllegalArgumentException("need " + NUM_PLAYERS + " locations");
+		for (int w = 0; w < occupied.length; w++) {
+			occupied[w] = 0;
+		}
+		for (int p = 0; p < NUM_PLAYERS; p++) {
+			hash ^= Zobrist.positionKey(p, positions[p]) ^ Zobrist.positionKey(p, ids[p]);
+			positions[p] = ids[p];
+			if (p != MRX && ids[p] != 0)
+				occupied[ids[p] >>> 6] |= 1L << ids[p];
+			invalidate(p);
+		}
+	}
+
+	/**
+	 * Return true if a detective is on the given location, and false
+	 * otherwise.
+	 *
+	 * @param id
+	 * @return boolean
+	 */
+	public boolean isOccupied(int id) {
+		return (occupied[id >>> 6] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Return true if MrX is on the given location, and false otherwise.
+	 *
+	 * @param id
+	 * @return boolean
+	 */
+	public boolean isHiding(int id) {
+		return id != 0 && positions[MRX] == id;
+	}
+
+	public int getTicket(int player, Ticket t) {
+		return tickets[player * NUM_TICKETS + t.ordinal()];
+	}
+
+	public void setTicket(int player, Ticket t, int num) {
+		int i = player * NUM_TICKETS + t.ordinal();
+		hash ^= Zobrist.ticketKey(player, t, tickets[i]) ^ Zobrist.ticketKey(player, t, num);
+		// the types of transportation change only when the last ticket is
+		// used or the first one is given
+		if (t.ordinal() < NUM_TRANSPORT_TICKETS && (tickets[i] > 0) != (num > 0))
+			invalidate(player);
+		tickets[i] = num;
+	}
+
+	public void addTicket(int player, Ticket t, int num) {
+		setTicket(player, t, tickets[player * NUM_TICKETS + t.ordinal()] + num);
+	}
+
+	/**
+	 * Return the Zobrist hash (see {@link Zobrist}) of the positions and
+	 * tickets of all players. It is kept up to date by every change, so this
+	 * method takes no time.
+	 *
+	 * @return hash
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Return the transport bits of the {@link Board} that the player has at
+	 * least one ticket for. A black ticket can be used for any type of
+	 * transportation, including the ship.
+	 *
+	 * @param player
+	 * @return transport bits
+	 */
+	public int transportsFor(int player) {
+		int base = player * NUM_TICKETS;
+		int retVal = 0;
+		if (tickets[base + Ticket.TAXI.ordinal()] > 0)
+			retVal |= Board.TAXI;
+		if (tickets[base + Ticket.BUS.ordinal()] > 0)
+			retVal |= Board.BUS;
+		if (tickets[base + Ticket.UNDERGROUND.ordinal()] > 0)
+			retVal |= Board.UNDERGROUND;
+		if (tickets[base + Ticket.BLACK.ordinal()] > 0)
+			retVal |= Board.ALL;
+		return retVal;
+	}
+
+	/**
+	 * Return true if the player cannot move to any location, because every
+	 * neighbour is occupied by a detective or cannot be reached with the
+	 * tickets the player has, and false otherwise.
+	 *
+	 * @param player
+	 * @return boolean
+	 */
+	public boolean isStuck(int player) {
+		int bit = 1 << player;
+		if ((dirty & bit) != 0) {
+			if (hasMove(player))
+				stuck &= ~bit;
+			else
+				stuck |= bit;
+			dirty &= ~bit;
+		}
+		return (stuck & bit) != 0;
+	}
+
+	/**
+	 * Return the winner of the game in this state, or NO_WINNER. A detective
+	 * wins by getting to MrX (the first of them, if there are more), MrX wins
+	 * if all of the detectives are stuck, and detective 0 wins for the team
+	 * if MrX is stuck.
+	 *
+	 * Only the players whose moves may have changed since the last call are
+	 * looked at again, so this takes constant time after a move.
+	 *
+	 * @return index of the winner
+	 */
+	public int getWinner() {
+		int mrx = positions[MRX];
+		if (mrx != 0 && isOccupied(mrx)) {
+			for (int d = 0; d < NUM_DETECTIVES; d++) {
+				if (positions[d] == mrx)
+					return d;
+			}
+		}
+		boolean allStuck = true;
+		for (int d = 0; d < NUM_DETECTIVES && allStuck; d++) {
+			allStuck = isStuck(d);
+		}
+		if (allStuck)
+			return MRX;
+		if (isStuck(MRX))
+			return 0;
+		return NO_WINNER;
+	}
+
+	/**
+	 * Return the version of the possible moves of the player. It changes
+	 * every time the player moves, uses the last ticket of a type or gets the
+	 * first one, or a detective leaves or takes a neighbouring location, and
+	 * it is never the same as the version before.
+	 *
+	 * @param player
+	 * @return version
+	 */
+	public long getMovesVersion(int player) {
+		return movesVersions[player];
+	}
+
+	// helper method to mark that the possible moves of a player may have
+	// changed
+	private void invalidate(int player) {
+		dirty |= 1 << player;
+		movesVersions[player] = ++clock;
+	}
+
+	// helper method to look for a possible move of the player
+	private boolean hasMove(int player) {
+		Board board = graph.getBoard();
+		int position = positions[player];
+		int transports = transportsFor(player);
+		for (int e = board.edgeStart(position); e < board.edgeEnd(position); e++) {
+			if ((board.transport(e) & transports) != 0 && !isOccupied(board.target(e)))
+				return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,206 @@
+package game;
+
+import java.util.List;
+
+import graph.AdjacencyBits;
+import graph.Board;
+import player.Detective;
+import player.Person.Ticket;
+
+/**
+ * Class to keep track of the set of locations where MrX could be
+ *
+ * The set starts from the start points that no detective is standing on, or
+ * from every free location if the game has start points of its own. Each
+ * ticket in MrX's travel log moves the set one step along the links of that
+ * type of transportation, and whenever MrX shows up (see
+ * {@link GameMaster#isRevealRound(int)}) the set becomes the location he
+ * showed up on, even in the middle of a double move. The locations of the
+ * detectives are removed after every update.
+ *
+ * The set is a bitset with one bit per location, and each ticket moves it
+ * with {@link AdjacencyBits#expand(long[], int, long[])}, so an update takes
+ * a few ORs per location in the set, or one per edge on a board too large
+ * for the table of the neighbors, and never allocates.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class CandidateTracker {
+
+	private final AdjacencyBits adjacency;
+	private final int numWords;
+	private long[] current;
+	private long[] next;
+	// number of tickets of the travel log that are already applied
+	private int applied;
+
+	public CandidateTracker(ScotlandYardGraph graph) {
+		adjacency = graph.getAdjacencyBits();
+		numWords = adjacency.getNumOfWords();
+		current = new long[numWords];
+		next = new long[numWords];
+	}
+
+	/**
+	 * Start tracking a new game. MrX can be on any of the start points that
+	 * is not taken by a detective, or anywhere a detective is not if the game
+	 * did not use the start points (see {@link GameMaster#isFromStartPoints()}).
+	 *
+	 * @param gm
+	 */
+	public void reset(GameMaster gm) {
+		clear(current);
+		if (gm.isFromStartPoints()) {
+			for (String name : gm.getStartPoints()) {
+				int id = Integer.parseInt(name);
+				current[id >>> 6] |= 1L << id;
+			}
+		} else {
+			for (int id = 1; id <= adjacency.getNumOfNodes(); id++) {
+				current[id >>> 6] |= 1L << id;
+			}
+		}
+		applied = 0;
+		removeDetectives(gm);
+	}
+
+	/**
+	 * Apply the tickets MrX used since the last update, and remove the
+	 * locations of the detectives.
+	 *
+	 * @param gm
+	 * @throws IllegalStateException
+	 *             if no location is left, which means that the updates do
+	 *             not match the game
+	 */
+	public void update(GameMaster gm) {
+		List<Ticket> log = gm.getMrx().getTravelLog();
+		if (log.size() < applied)
+			throw new IllegalStateException("travel log is shorter than before: " + log.size());
+		while (applied < log.size()) {
+			step(transportsOf(log.get(applied)));
+			applied++;
+			// MrX shows up after this ticket, which may be the first one of a
+			// double move
+			if (GameMaster.isRevealRound(applied)) {
+				clear(current);
+				int id = gm.getRevealedPosition(applied);
+				current[id >>> 6] |= 1L << id;
+			}
+		}
+		removeDetectives(gm);
+		// MrX is always somewhere in the set, unless it was not updated with
+		// every ticket of this game
+		if (size() == 0)
+			throw new IllegalStateException("no location left for MrX after " + applied + " tickets");
+	}
+
+	// helper method to move every location in the set by one step
+	private void step(int transports) {
+		if (transports == 0)
+			return;
+		adjacency.expand(current, transports, next);
+		long[] tmp = current;
+		current = next;
+		next = tmp;
+	}
+
+	// helper method to remove the locations of the detectives from the set
+	private void removeDetectives(GameMaster gm) {
+		List<Detective> detectives = gm.getDetectives();
+		for (int i = 0; i < detectives.size(); i++) {
+			int id = detectives.get(i).getPositionId();
+			current[id >>> 6] &= ~(1L << id);
+		}
+	}
+
+	// helper method to turn a ticket into the transport bits it can use
+	private static int transportsOf(Ticket t) {
+		switch (t) {
+		case TAXI:
+			return Board.TAXI;
+		case BUS:
+			return Board.BUS;
+		case UNDERGROUND:
+			return Board.UNDERGROUND;
+		case BLACK:
+			return Board.ALL;
+		default:
+			// a double move card does not move MrX by itself
+			return 0;
+		}
+	}
+
+	private static void clear(long[] words) {
+		for (int w = 0; w < words.length; w++) {
+			words[w] = 0;
+		}
+	}
+
+	/**
+	 * Return true if MrX could be on the given location, and false otherwise.
+	 *
+	 * @param id
+	 * @return boolean
+	 */
+	public boolean contains(int id) {
+		return (current[id >>> 6] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Return the number of locations where MrX could be.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		int count = 0;
+		for (int w = 0; w < numWords; w++) {
+			count += Long.bitCount(current[w]);
+		}
+		return count;
+	}
+
+	/**
+	 * Return the smallest location in the set that is at least the given id,
+	 * or -1 if there is none. Use it to walk the set:
+	 *
+	 * <pre>
+	 * for (int id = t.nextCandidate(0); id &gt;= 0; id = t.nextCandidate(id + 1))
+	 * </pre>
+	 *
+	 * @param from
+	 * @return id
+	 */
+	public int nextCandidate(int from) {
+		int w = from >>> 6;
+		if (w >= numWords)
+			return -1;
+		long bits = current[w] & (-1L << from);
+		while (bits == 0) {
+			if (++w == numWords)
+				return -1;
+			bits = current[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Copy the set into the given array, one bit per location.
+	 *
+	 * @param words
+	 *            array of at least {@link #getNumOfWords()} longs
+	 */
+	public void copyTo(long[] words) {
+		System.arraycopy(current, 0, words, 0, numWords);
+	}
+
+	/**
+	 * getter
+	 * @return the number of longs used by the set
+	 */
+	public int getNumOfWords() {
+		return numWords;
+	}
+
+}
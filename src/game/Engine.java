@@ -0,0 +1,79 @@
+package game;
+
+import java.util.Random;
+import java.util.function.Function;
+
+import ai.AI;
+import player.Detective;
+import player.MrX;
+import player.Person;
+
+/**
+ * Class to play whole games without the frame
+ *
+ * MrX and every detective are moved by the brains given to the engine, in the
+ * same order of turns as {@link ScotlandYardFrame}. Nothing is drawn or
+ * printed, so games can be played on a machine without a display.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class Engine {
+
+	private final ScotlandYardGraph graph;
+	private final Function<MrX, AI> mrxBrain;
+	private final Function<Detective, AI> detectiveBrain;
+
+	/**
+	 * Create an engine that plays on the given graph. The functions create a
+	 * new brain for MrX and for each detective at the beginning of every game.
+	 *
+	 * @param graph
+	 * @param mrxBrain
+	 * @param detectiveBrain
+	 */
+	public Engine(ScotlandYardGraph graph, Function<MrX, AI> mrxBrain, Function<Detective, AI> detectiveBrain) {
+		this.graph = graph;
+		this.mrxBrain = mrxBrain;
+		this.detectiveBrain = detectiveBrain;
+	}
+
+	/**
+	 * Play one game until there is a winner and return the game master of
+	 * that game. The winner is given by {@link GameMaster#checkWinner()} and
+	 * the number of rounds by the size of MrX's travel log.
+	 *
+	 * @param random
+	 *            used to choose the start points
+	 * @return gm
+	 * @throws Exception
+	 *             if a brain fails to move its player
+	 */
+	public GameMaster play(Random random) throws Exception {
+		GameMaster gm = new GameMaster(graph, random);
+		gm.getMrx().setBrain(mrxBrain.apply(gm.getMrx()));
+		for (Detective d : gm.getDetectives()) {
+			d.setBrain(detectiveBrain.apply(d));
+		}
+
+		gm.gameStart();
+		Person winner = gm.checkWinner();
+		while (winner == null) {
+			if (gm.getTurn() == Turn.MrX) {
+				gm.moveMrX();
+			} else {
+				Detective d = gm.getDetectives().get(gm.getTurn().NUM);
+				// if there is no possible moves, skip his turn
+				if (!d.isStuck()) {
+					d.seeTheBoard(gm);
+					d.move();
+				}
+			}
+			gm.nextTurn();
+			winner = gm.checkWinner();
+		}
+		gm.setGameOver(true);
+		return gm;
+	}
+
+}
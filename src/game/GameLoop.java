@@ -0,0 +1,249 @@
+package game;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import graph.Board;
+import main.Main;
+import player.Detective;
+import player.Person;
+import player.Person.Ticket;
+
+/**
+ * Class to run a game on a thread of its own
+ *
+ * The game loop owns the {@link GameMaster} and the brains of the players:
+ * only its thread reads or changes the game. The frame sends the moves of
+ * the user to it with {@link #startGame()} and
+ * {@link #moveDetective(int, int, Ticket)}, and gets back a
+ * {@link RenderSnapshot} after every change, so however long a brain thinks,
+ * the Event Dispatch Thread only has to draw.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class GameLoop implements Runnable {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private final GameMaster gm;
+	private final Consumer<RenderSnapshot> listener;
+	// commands from other threads, run one by one on the thread of the loop
+	private final BlockingQueue<Runnable> commands = new LinkedBlockingQueue<Runnable>();
+	private final Thread thread;
+	private volatile RenderSnapshot snapshot;
+	private volatile boolean running;
+
+	/**
+	 * Create a game loop for the given game. The listener is called on the
+	 * thread of the loop with every new snapshot, and should only hand it
+	 * over to the thread that draws it.
+	 *
+	 * @param gm
+	 * @param listener
+	 */
+	public GameLoop(GameMaster gm, Consumer<RenderSnapshot> listener) {
+		this.gm = gm;
+		this.listener = listener;
+		this.snapshot = takeSnapshot(false);
+		thread = new Thread(this, "game-loop");
+		thread.setDaemon(true);
+	}
+
+	public void start() {
+		running = true;
+		thread.start();
+	}
+
+	/**
+	 * Stop the loop after the command it is running. A brain which is
+	 * thinking is not interrupted.
+	 */
+	public void stop() {
+		running = false;
+		thread.interrupt();
+	}
+
+	// getter
+	public RenderSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Start the game, if it has not started yet.
+	 */
+	public void startGame() {
+		commands.add(() -> {
+			if (gm.getTurn() != null)
+				return;
+			gm.gameStart();
+		});
+	}
+
+	/**
+	 * Move the given detective to the given location using the given ticket.
+	 * The move is ignored if it is not his turn or he cannot make it any
+	 * more, for example because the user clicked twice.
+	 *
+	 * @param player
+	 *            index of the detective
+	 * @param to
+	 * @param t
+	 */
+	public void moveDetective(int player, int to, Ticket t) {
+		commands.add(() -> {
+			Turn turn = gm.getTurn();
+			if (gm.isGameOver() || turn == null || turn == Turn.MrX || turn.NUM != player)
+				return;
+			BoardState state = gm.getState();
+			int from = state.getPosition(player);
+			int transport = 1 << t.ordinal();
+			if (state.isOccupied(to) || (state.getBoard().transportsBetween(from, to) & transport) == 0
+					|| (state.transportsFor(player) & transport) == 0)
+				return;
+			Detective d = gm.getDetectives().get(player);
+			d.moveTo(to, t, gm.getMrx());
+			if (Main.DEBUG) {
+				System.out.println("");
+				d.showLeftTickets();
+			}
+			gm.nextTurn();
+		});
+	}
+
+	@Override
+	public void run() {
+		publish(false);
+		if (Main.DEBUG && gm.getTurn() == null)
+			System.out.println("press start button: File -> Start");
+		while (running) {
+			Runnable command;
+			try {
+				command = commands.take();
+			} catch (InterruptedException e) {
+				// stopped
+				return;
+			}
+			try {
+				command.run();
+				advance();
+			} catch (Exception e) {
+				// a brain failed, wait for the next command
+				e.printStackTrace();
+				publish(false);
+			}
+		}
+	}
+
+	// helper method to play the turns that do not wait for the user, until
+	// the turn of a detective moved by the user or the end of the game
+	private void advance() throws Exception {
+		while (running && gm.getTurn() != null && !gm.isGameOver()) {
+			// check whether there is a winner or not
+			Person winner = gm.checkWinner();
+			if (winner != null) {
+				gm.setGameOver(true);
+				break;
+			}
+			if (Main.DEBUG)
+				System.out.println("--------------------------------------------------");
+			if (gm.getTurn() == Turn.MrX) {
+				// move MrX, and show his left tickets and travel log when
+				// debugging
+				publish(true);
+				gm.moveMrX();
+				if (Main.DEBUG) {
+					System.out.println("Turn of MrX");
+					System.out.println("\nTickets");
+					gm.showMrXTickets();
+					System.out.println("\nTravel Log");
+					gm.showTravelLog();
+				}
+				gm.nextTurn();
+				continue;
+			}
+
+			Detective d = gm.getDetectives().get(gm.getTurn().NUM);
+			if (Main.DEBUG)
+				System.out.println("Turn of Detective " + gm.getTurn());
+			// if there is no possible moves, skip his turn
+			if (d.isStuck()) {
+				if (Main.DEBUG)
+					System.out.println("Detective " + d.getName() + " cannot move, skip his turn");
+				gm.nextTurn();
+			} else if (d.hasBrain()) {
+				publish(true);
+				d.seeTheBoard(gm);
+				d.move();
+				gm.nextTurn();
+			} else {
+				break;
+			}
+		}
+		publish(false);
+	}
+
+	// helper method to make a new snapshot and hand it to the listener
+	private void publish(boolean thinking) {
+		snapshot = takeSnapshot(thinking);
+		listener.accept(snapshot);
+	}
+
+	// helper method to copy what the frame draws out of the game
+	private RenderSnapshot takeSnapshot(boolean thinking) {
+		BoardState state = gm.getState();
+		int[] positions = new int[BoardState.NUM_PLAYERS];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = state.getPosition(i);
+		}
+		Turn turn = gm.getTurn();
+		int[] moves = new int[0];
+		byte[] moveTransports = new byte[0];
+		if (turn != null && turn != Turn.MrX && !thinking && !gm.isGameOver()) {
+			int player = turn.NUM;
+			Board board = state.getBoard();
+			int from = state.getPosition(player);
+			int tickets = state.transportsFor(player);
+			moves = new int[board.degree(from)];
+			moveTransports = new byte[moves.length];
+			int count = 0;
+			for (int e = board.edgeStart(from); e < board.edgeEnd(from); e++) {
+				int next = board.target(e);
+				int usable = board.transport(e) & tickets;
+				if (usable == 0 || state.isOccupied(next))
+					continue;
+				moves[count] = next;
+				moveTransports[count] = (byte) usable;
+				count++;
+			}
+			moves = Arrays.copyOf(moves, count);
+			moveTransports = Arrays.copyOf(moveTransports, count);
+		}
+		int winner = RenderSnapshot.NO_WINNER;
+		if (gm.isGameOver()) {
+			Person p = gm.checkWinner();
+			if (p != null)
+				winner = p.getIndex();
+		}
+		return new RenderSnapshot(positions, turn, gm.getMrx().getTravelLog().size(), gm.doesMrxShowUp(), thinking,
+				moves, moveTransports, winner);
+	}
+
+	/**
+	 * Return the tickets which use the given transport bits.
+	 *
+	 * @param transports
+	 * @return tickets, in the order of their transport bits
+	 */
+	public static Ticket[] ticketsOf(int transports) {
+		Ticket[] retVal = new Ticket[Integer.bitCount(transports & Board.ALL)];
+		int bits = transports & Board.ALL;
+		for (int i = 0; bits != 0; i++, bits &= bits - 1) {
+			retVal[i] = TICKETS[Integer.numberOfTrailingZeros(bits)];
+		}
+		return retVal;
+	}
+
+}
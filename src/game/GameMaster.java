@@ -1,12 +1,12 @@
 package game;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
 
-import graph.Node;
 import main.Main;
 import player.Detective;
 import player.MrX;
@@ -21,35 +21,129 @@ import player.Person.Ticket;
  */
 public class GameMaster {
 
-	private final String[] startPoints = { "13", "26", "29", "34", "50", "53", "91", "94", "103", "112", "117", "132",
+	private static final String[] startPoints = { "13", "26", "29", "34", "50", "53", "91", "94", "103", "112", "117", "132",
 			"138", "141", "155", "174", "197", "198" };
 
 	private ScotlandYardGraph graph;
+	private BoardState state;
 	private MrX mrx;
 	private List<Detective> detectives;
 	private List<Ticket> travelLog;
 	private boolean gameOver;
 	private Turn currentTurn;
+	// MrX started on one of startPoints
+	private boolean fromStartPoints;
+
+	// moves made by makeMove, packed as in the constants below, so that they
+	// can be taken back by unmakeMove
+	private long[] undoStack = new long[64];
+	private int undoSize;
+	private int madeMoves;
+
+	private static final int FROM_SHIFT = 6;
+	private static final int TO_SHIFT = 30;
+	private static final int TURN_SHIFT = 54;
+	private static final long LOCATION_MASK = (1L << 24) - 1;
+	// no ticket is used by a pass
+	private static final int NO_TICKET = 7;
+	// the ticket was given to MrX
+	private static final long TRANSFERRED = 1L << 57;
+	// the ticket was written in the travel log
+	private static final long LOGGED = 1L << 58;
+	// the entry is taken back together with the entry below it
+	private static final long LINKED = 1L << 59;
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Turn[] TURNS = Turn.values();
 
 	public GameMaster(ScotlandYardGraph g) {
+		this(g, new Random());
+	}
+
+	/**
+	 * Create a game whose start points are chosen by the given random number
+	 * generator, so that the same seed always gives the same game.
+	 * 
+	 * @param g
+	 * @param r
+	 */
+	public GameMaster(ScotlandYardGraph g, Random r) {
+		this(g, randomStartPoints(r));
+		fromStartPoints = true;
+	}
+
+	/**
+	 * Create a game with the players on the given locations. starts[0] to
+	 * starts[4] are the detectives A to E, and starts[5] is MrX (see
+	 * {@link BoardState}). Everybody gets the usual tickets. MrX can start on
+	 * any location, not only on one of {@link #getStartPoints()}.
+	 * 
+	 * @param g
+	 * @param starts
+	 * @throws IllegalArgumentException
+	 *             if a location is not on the board or is used twice
+	 */
+	public GameMaster(ScotlandYardGraph g, int[] starts) {
+		if (starts.length != BoardState.NUM_PLAYERS)
+			throw new IllegalArgumentException("need " + BoardState.NUM_PLAYERS + " start points");
+		for (int i = 0; i < starts.length; i++) {
+			if (starts[i] < 1 || starts[i] > g.getBoard().getNumOfNodes())
+				throw new IllegalArgumentException("no such location: " + starts[i]);
+			for (int j = 0; j < i; j++) {
+				if (starts[i] == starts[j])
+					throw new IllegalArgumentException("two players on " + starts[i]);
+			}
+		}
 		graph = g;
-		mrx = new MrX("Mr.X", randomStartPoint(), mrxTickets());
-		travelLog = new ArrayList<Ticket>();
+		state = new BoardState(g);
+		mrx = new MrX("Mr.X", state, starts[BoardState.MRX], mrxTickets());
+		travelLog = mrx.getTravelLog();
 		gameOver = false;
 
 		detectives = new ArrayList<Detective>();
-		detectives.add(new Detective("A", randomStartPoint(), detectiveTickets()));
-		detectives.add(new Detective("B", randomStartPoint(), detectiveTickets()));
-		detectives.add(new Detective("C", randomStartPoint(), detectiveTickets()));
-		detectives.add(new Detective("D", randomStartPoint(), detectiveTickets()));
-		detectives.add(new Detective("E", randomStartPoint(), detectiveTickets()));
+		detectives.add(new Detective("A", state, 0, starts[0], detectiveTickets()));
+		detectives.add(new Detective("B", state, 1, starts[1], detectiveTickets()));
+		detectives.add(new Detective("C", state, 2, starts[2], detectiveTickets()));
+		detectives.add(new Detective("D", state, 3, starts[3], detectiveTickets()));
+		detectives.add(new Detective("E", state, 4, starts[4], detectiveTickets()));
+	}
+
+	/**
+	 * Create a copy of the given game, for example for an AI to try moves on.
+	 * The copy has the same positions, tickets, travel log and turn, but none
+	 * of the players has a brain and no move can be taken back.
+	 * 
+	 * @param other
+	 */
+	public GameMaster(GameMaster other) {
+		graph = other.graph;
+		state = new BoardState(other.state);
+		mrx = new MrX(other.mrx, state);
+		travelLog = mrx.getTravelLog();
+		gameOver = other.gameOver;
+		currentTurn = other.currentTurn;
+		fromStartPoints = other.fromStartPoints;
+
+		detectives = new ArrayList<Detective>();
+		for (Detective d : other.detectives) {
+			detectives.add(new Detective(d, state));
+		}
+	}
+
+	// helper method to initialize
+	// MrX chooses first, then the detectives from A to E
+	private static int[] randomStartPoints(Random random) {
+		int[] retVal = new int[BoardState.NUM_PLAYERS];
+		retVal[BoardState.MRX] = randomStartPoint(random, retVal);
+		for (int i = 0; i < BoardState.NUM_DETECTIVES; i++) {
+			retVal[i] = randomStartPoint(random, retVal);
+		}
+		return retVal;
 	}
 
 	// helper method to initialize
-	private Node randomStartPoint() {
-		Node node;
+	private static int randomStartPoint(Random random, int[] taken) {
+		int node;
 		while (true) {
-			Random random = new Random();
 			int r = random.nextInt(18);
 
 			if (Main.DEBUG) {
@@ -57,13 +151,33 @@ public class GameMaster {
 				System.out.println("random num is " + r + ": node name is " + startPoints[r] + "\n");
 			}
 
-			node = graph.getGraph().getOrCreateNode(startPoints[r]);
-			if (!node.getOccupied() && !node.getHiding())
+			node = Integer.parseInt(startPoints[r]);
+			boolean free = true;
+			for (int id : taken) {
+				if (id == node)
+					free = false;
+			}
+			if (free)
 				break;
 		}
 		return node;
 	}
 
+	/**
+	 * Return the usual start points: MrX on the first location of
+	 * {@link #getStartPoints()} and the detectives A to E on the next five.
+	 * 
+	 * @return starts in the order of {@link #GameMaster(ScotlandYardGraph, int[])}
+	 */
+	public static int[] defaultStartPoints() {
+		int[] retVal = new int[BoardState.NUM_PLAYERS];
+		retVal[BoardState.MRX] = Integer.parseInt(startPoints[0]);
+		for (int i = 0; i < BoardState.NUM_DETECTIVES; i++) {
+			retVal[i] = Integer.parseInt(startPoints[i + 1]);
+		}
+		return retVal;
+	}
+
 	// helper method to initialize
 	private Map<Ticket, Integer> mrxTickets() {
 		Map<Ticket, Integer> retVal = new TreeMap<Ticket, Integer>();
@@ -103,26 +217,21 @@ public class GameMaster {
 		}
 	}
 
+	/**
+	 * Return the winner of the game, or null if there is none yet: the
+	 * detective who got to MrX, MrX if all of the detectives are stuck, or
+	 * detective A if MrX is stuck. It is kept up to date by the state (see
+	 * {@link BoardState#getWinner()}), so this takes constant time.
+	 * 
+	 * @return winner
+	 */
 	public Person checkWinner() {
-		int stuck = 0;
-		for (Detective d : detectives) {
-			// count the number of detectives who cannot move
-			if (d.possibleMoves().size() == 0)
-				stuck++;
-			// victory condition of detectives
-			if (d.getPosition().getHiding() == true)
-				return d;
-		}
-		// victory condition of MrX
-		if (stuck == detectives.size()) {
+		int winner = state.getWinner();
+		if (winner == BoardState.NO_WINNER)
+			return null;
+		if (winner == BoardState.MRX)
 			return mrx;
-		}
-		// victory condition of detectives
-		if (mrx.possibleMoves().size() == 0) {
-			return detectives.get(0);
-		}
-
-		return null;
+		return detectives.get(winner);
 	}
 
 	/**
@@ -133,6 +242,14 @@ public class GameMaster {
 		return mrx;
 	}
 
+	/**
+	 * getter
+	 * @return the state of the board of this game
+	 */
+	public BoardState getState() {
+		return state;
+	}
+
 	/**
 	 * getter
 	 * @return the detectives 
@@ -161,12 +278,198 @@ public class GameMaster {
 		return currentTurn;
 	}
 
+	/**
+	 * Move the player whose turn it is to the given location using the given
+	 * ticket, and pass the turn to the next player, in a way that
+	 * {@link #unmakeMove()} can take back exactly.
+	 * 
+	 * A detective gives the ticket to MrX, and MrX writes it in the travel
+	 * log. The move itself is not checked, so it should be one of the
+	 * possible moves of the player.
+	 * 
+	 * @param to
+	 * @param t
+	 */
+	public void makeMove(int to, Ticket t) {
+		step(currentPlayer(), to, t, 0);
+		madeMoves++;
+		currentTurn = currentTurn.next();
+	}
+
+	/**
+	 * Make a packed move (see {@link Move}) of the player whose turn it is,
+	 * like {@link #makeMove(int, Ticket)}. A double move uses MrX's double
+	 * move card and writes both tickets in the travel log, and is taken back
+	 * by one call of {@link #unmakeMove()}.
+	 * 
+	 * @param move
+	 */
+	public void makeMove(long move) {
+		if (!Move.isDouble(move)) {
+			makeMove(Move.firstDestination(move), Move.firstTicket(move));
+			return;
+		}
+		int player = currentPlayer();
+		int position = state.getPosition(player);
+		// the card itself does not move MrX and is not written in the log
+		state.addTicket(player, Ticket.DOUBLE, -1);
+		push(entry(player, Ticket.DOUBLE.ordinal(), position, position));
+		step(player, Move.firstDestination(move), Move.firstTicket(move), LINKED);
+		step(player, Move.secondDestination(move), Move.secondTicket(move), LINKED);
+		madeMoves++;
+		currentTurn = currentTurn.next();
+	}
+
+	/**
+	 * Skip the turn of the current player, who cannot move, in a way that
+	 * {@link #unmakeMove()} can take back.
+	 */
+	public void makePass() {
+		int player = currentPlayer();
+		int position = state.getPosition(player);
+		push(entry(player, NO_TICKET, position, position));
+		madeMoves++;
+		currentTurn = currentTurn.next();
+	}
+
+	/**
+	 * Take back the last move made by {@link #makeMove(int, Ticket)},
+	 * {@link #makeMove(long)} or {@link #makePass()}, restoring the
+	 * positions, the tickets, the travel log and the turn as they were before
+	 * it.
+	 * 
+	 * @throws IllegalStateException
+	 *             if there is no move to take back
+	 */
+	public void unmakeMove() {
+		if (undoSize == 0)
+			throw new IllegalStateException("no move to take back");
+		long entry;
+		do {
+			entry = undoStack[--undoSize];
+			int player = (int) (entry & 7);
+			int ticket = (int) (entry >>> 3) & 7;
+			currentTurn = TURNS[(int) (entry >>> TURN_SHIFT & 7) - 1];
+			state.setPosition(player, (int) (entry >>> FROM_SHIFT & LOCATION_MASK));
+			if (ticket != NO_TICKET) {
+				Ticket t = TICKETS[ticket];
+				state.addTicket(player, t, 1);
+				if ((entry & TRANSFERRED) != 0)
+					state.addTicket(BoardState.MRX, t, -1);
+				if ((entry & LOGGED) != 0)
+					travelLog.remove(travelLog.size() - 1);
+			}
+		} while ((entry & LINKED) != 0);
+		madeMoves--;
+	}
+
+	/**
+	 * Return the number of moves that {@link #unmakeMove()} can take back.
+	 * 
+	 * @return number of moves
+	 */
+	public int getNumOfMadeMoves() {
+		return madeMoves;
+	}
+
+	/**
+	 * Clear the list and fill it with every legal move of the player whose
+	 * turn it is.
+	 * 
+	 * @param out
+	 * @return number of moves
+	 */
+	public int generateMoves(MoveList out) {
+		return MoveGenerator.generate(state, currentPlayer(), out);
+	}
+
+	// helper method to move a player one step and record it
+	private void step(int player, int to, Ticket t, long flags) {
+		long entry = entry(player, t.ordinal(), state.getPosition(player), to) | flags;
+		if (player == BoardState.MRX) {
+			// MrX writes the ticket and his new location in his travel log
+			mrx.useTicket(t);
+			mrx.changePosition(to);
+			entry |= LOGGED;
+		} else {
+			state.addTicket(player, t, -1);
+			state.addTicket(BoardState.MRX, t, 1);
+			state.setPosition(player, to);
+			entry |= TRANSFERRED;
+		}
+		push(entry);
+	}
+
+	// helper method to pack an entry of the undo stack
+	private long entry(int player, int ticket, int from, int to) {
+		return player | ((long) ticket << 3) | ((long) from << FROM_SHIFT) | ((long) to << TO_SHIFT)
+				| ((long) (currentTurn.ordinal() + 1) << TURN_SHIFT);
+	}
+
+	// helper method to find the index of the player whose turn it is
+	private int currentPlayer() {
+		if (currentTurn == null)
+			throw new IllegalStateException("the game has not started");
+		return currentTurn == Turn.MrX ? BoardState.MRX : currentTurn.NUM;
+	}
+
+	// helper method to add an entry to the undo stack
+	private void push(long entry) {
+		if (undoSize == undoStack.length)
+			undoStack = Arrays.copyOf(undoStack, undoSize * 2);
+		undoStack[undoSize++] = entry;
+	}
+
 	public boolean doesMrxShowUp() {
-		int num = travelLog.size();
-		if (num == 3 || num == 8 || num == 13 || num == 18) {
+		return isRevealRound(travelLog.size());
+	}
+
+	/**
+	 * Return true if MrX has to show up after using the given number of
+	 * tickets, and false otherwise.
+	 * 
+	 * @param numOfMoves
+	 * @return boolean
+	 */
+	public static boolean isRevealRound(int numOfMoves) {
+		if (numOfMoves == 3 || numOfMoves == 8 || numOfMoves == 13 || numOfMoves == 18) {
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Return the location where MrX showed up after using the given number of
+	 * tickets.
+	 * 
+	 * @param numOfMoves
+	 * @return location id
+	 * @throws IllegalArgumentException
+	 *             if MrX does not show up then, or has not used that many
+	 *             tickets yet
+	 */
+	public int getRevealedPosition(int numOfMoves) {
+		if (!isRevealRound(numOfMoves))
+			throw new IllegalArgumentException("MrX does not show up after " + numOfMoves + " moves");
+		return mrx.getPositionAfter(numOfMoves);
+	}
+
+	/**
+	 * Return true if MrX started on one of {@link #getStartPoints()}, and
+	 * false if the game was made with start points of its own.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isFromStartPoints() {
+		return fromStartPoints;
+	}
+
+	/**
+	 * getter
+	 * @return the names of the locations where a player can start
+	 */
+	public String[] getStartPoints() {
+		return startPoints.clone();
+	}
+
 }
@@ -0,0 +1,218 @@
+package game;
+
+import player.Person.Ticket;
+
+/**
+ * Immutable snapshot of a game packed into four longs: the positions of the
+ * first and the last three players, the tickets of the five detectives, and
+ * the tickets of MrX with the turn and the round.
+ *
+ * Copying a GameState is copying a reference, and equals and hashCode only
+ * look at the four longs, so it can be used as a key of a map or a table of
+ * a search.
+ *
+ * <pre>
+ * lowPositions:     3 x 21 bits of location ids of players 0 to 2
+ * highPositions:    3 x 21 bits of location ids of players 3 to 5
+ * detectiveTickets: 5 x 11 bits of TAXI (4), BUS (4) and UNDERGROUND (3)
+ * mrxTickets:       5 x 8 bits of TAXI, BUS, UNDERGROUND, BLACK and DOUBLE,
+ *                   3 bits of turn (ordinal + 1, 0 before the start),
+ *                   8 bits of round (number of tickets MrX has used)
+ * </pre>
+ *
+ * Because of the packing, the board can have at most about two million
+ * locations, which is more than the largest maps of main.MapGenerator that
+ * the other tables can hold.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class GameState {
+
+	private static final int POSITION_BITS = 21;
+	public static final int MAX_LOCATIONS = (1 << POSITION_BITS) - 1;
+	// players in each long of positions
+	private static final int PLAYERS_PER_WORD = 3;
+	private static final int MRX_BITS = 8;
+	private static final int TURN_SHIFT = Ticket.values().length * MRX_BITS;
+	private static final int ROUND_SHIFT = TURN_SHIFT + 3;
+	private static final int MAX_ROUND = 255;
+
+	// bits and offsets of the tickets of one detective
+	private static final int[] DETECTIVE_BITS = { 4, 4, 3 };
+	private static final int[] DETECTIVE_SHIFTS = { 0, 4, 8 };
+	private static final int DETECTIVE_WIDTH = 11;
+
+	private static final Turn[] TURNS = Turn.values();
+
+	private final long lowPositions;
+	private final long highPositions;
+	private final long detectiveTickets;
+	private final long mrxTickets;
+
+	private GameState(long lowPositions, long highPositions, long detectiveTickets, long mrxTickets) {
+		this.lowPositions = lowPositions;
+		this.highPositions = highPositions;
+		this.detectiveTickets = detectiveTickets;
+		this.mrxTickets = mrxTickets;
+	}
+
+	/**
+	 * Take a snapshot of the current state of the given game.
+	 *
+	 * @param gm
+	 * @return snapshot
+	 */
+	public static GameState of(GameMaster gm) {
+		return of(gm.getState(), gm.getTurn(), gm.getMrx().getTravelLog().size());
+	}
+
+	/**
+	 * Take a snapshot of the given board state.
+	 *
+	 * @param state
+	 * @param turn
+	 *            whose turn it is, or null before the start
+	 * @param round
+	 *            number of tickets MrX has used
+	 * @return snapshot
+	 * @throws IllegalArgumentException
+	 *             if something does not fit in the packing
+	 */
+	public static GameState of(BoardState state, Turn turn, int round) {
+		if (state.getBoard().getNumOfNodes() > MAX_LOCATIONS)
+			throw new IllegalArgumentException("too many locations: " + state.getBoard().getNumOfNodes());
+		GameState retVal = new GameState(0, 0, 0, 0).withTurn(turn).withRound(round);
+		for (int p = 0; p < BoardState.NUM_PLAYERS; p++) {
+			retVal = retVal.withPosition(p, state.getPosition(p));
+			for (Ticket t : Ticket.values()) {
+				retVal = retVal.withTicket(p, t, state.getTicket(p, t));
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Write the positions and tickets of this snapshot into the given state.
+	 * All of the positions are written at once, so that a detective moving
+	 * onto a location another one has left does not free it.
+	 *
+	 * @param state
+	 */
+	public void restore(BoardState state) {
+		int[] ids = new int[BoardState.NUM_PLAYERS];
+		for (int p = 0; p < BoardState.NUM_PLAYERS; p++) {
+			ids[p] = getPosition(p);
+			for (Ticket t : Ticket.values()) {
+				state.setTicket(p, t, getTicket(p, t));
+			}
+		}
+		state.setPositions(ids);
+	}
+
+	public int getPosition(int player) {
+		long word = player < PLAYERS_PER_WORD ? lowPositions : highPositions;
+		return (int) (word >>> (player % PLAYERS_PER_WORD * POSITION_BITS)) & MAX_LOCATIONS;
+	}
+
+	public GameState withPosition(int player, int id) {
+		check(id, MAX_LOCATIONS, "location");
+		int shift = player % PLAYERS_PER_WORD * POSITION_BITS;
+		long mask = (long) MAX_LOCATIONS << shift;
+		if (player < PLAYERS_PER_WORD)
+			return new GameState((lowPositions & ~mask) | ((long) id << shift), highPositions, detectiveTickets,
+					mrxTickets);
+		return new GameState(lowPositions, (highPositions & ~mask) | ((long) id << shift), detectiveTickets,
+				mrxTickets);
+	}
+
+	/**
+	 * Return whose turn it is, or null before the start.
+	 *
+	 * @return turn
+	 */
+	public Turn getTurn() {
+		int i = (int) (mrxTickets >>> TURN_SHIFT) & 7;
+		return i == 0 ? null : TURNS[i - 1];
+	}
+
+	public GameState withTurn(Turn turn) {
+		long i = turn == null ? 0 : turn.ordinal() + 1;
+		return new GameState(lowPositions, highPositions, detectiveTickets,
+				(mrxTickets & ~(7L << TURN_SHIFT)) | (i << TURN_SHIFT));
+	}
+
+	public int getRound() {
+		return (int) (mrxTickets >>> ROUND_SHIFT) & MAX_ROUND;
+	}
+
+	public GameState withRound(int round) {
+		check(round, MAX_ROUND, "round");
+		return new GameState(lowPositions, highPositions, detectiveTickets,
+				(mrxTickets & ~((long) MAX_ROUND << ROUND_SHIFT)) | ((long) round << ROUND_SHIFT));
+	}
+
+	public int getTicket(int player, Ticket t) {
+		if (player == BoardState.MRX) {
+			return (int) (mrxTickets >>> (t.ordinal() * MRX_BITS)) & ((1 << MRX_BITS) - 1);
+		}
+		if (t.ordinal() >= DETECTIVE_BITS.length)
+			return 0;
+		int shift = player * DETECTIVE_WIDTH + DETECTIVE_SHIFTS[t.ordinal()];
+		return (int) (detectiveTickets >>> shift) & ((1 << DETECTIVE_BITS[t.ordinal()]) - 1);
+	}
+
+	public GameState withTicket(int player, Ticket t, int num) {
+		if (player == BoardState.MRX) {
+			check(num, (1 << MRX_BITS) - 1, "tickets");
+			int shift = t.ordinal() * MRX_BITS;
+			long mask = ((1L << MRX_BITS) - 1) << shift;
+			return new GameState(lowPositions, highPositions, detectiveTickets,
+					(mrxTickets & ~mask) | ((long) num << shift));
+		}
+		if (t.ordinal() >= DETECTIVE_BITS.length) {
+			check(num, 0, "tickets");
+			return this;
+		}
+		check(num, (1 << DETECTIVE_BITS[t.ordinal()]) - 1, "tickets");
+		int shift = player * DETECTIVE_WIDTH + DETECTIVE_SHIFTS[t.ordinal()];
+		long mask = ((1L << DETECTIVE_BITS[t.ordinal()]) - 1) << shift;
+		return new GameState(lowPositions, highPositions, (detectiveTickets & ~mask) | ((long) num << shift),
+				mrxTickets);
+	}
+
+	// helper method to make sure a value fits in its bits
+	private static void check(int value, int max, String what) {
+		if (value < 0 || value > max)
+			throw new IllegalArgumentException(what + " out of range: " + value);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof GameState))
+			return false;
+		GameState other = (GameState) o;
+		return lowPositions == other.lowPositions && highPositions == other.highPositions
+				&& detectiveTickets == other.detectiveTickets && mrxTickets == other.mrxTickets;
+	}
+
+	@Override
+	public int hashCode() {
+		long h = lowPositions * 0x9E3779B97F4A7C15L;
+		h = (h ^ highPositions) * 0x9E3779B97F4A7C15L;
+		h = (h ^ detectiveTickets) * 0xC2B2AE3D27D4EB4FL;
+		h = (h ^ mrxTickets) * 0x165667B19E3779F9L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("round ").append(getRound()).append(", turn ").append(getTurn());
+		for (int p = 0; p < BoardState.NUM_PLAYERS; p++) {
+			sb.append(p == BoardState.MRX ? ", MrX " : ", " + TURNS[p] + " ").append(getPosition(p));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,95 @@
+package game;
+
+import player.Person.Ticket;
+
+/**
+ * Helper methods for moves packed into a long, so that lists of moves can be
+ * kept in primitive arrays (see {@link MoveList}).
+ *
+ * <pre>
+ * bits  0-23: destination of the first step
+ * bits 24-26: ticket of the first step (ordinal of {@link Ticket})
+ * bits 27-50: destination of the second step of a double move
+ * bits 51-53: ticket of the second step of a double move
+ * bit     54: set for a double move
+ * </pre>
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class Move {
+
+	private static final long LOCATION_MASK = (1L << 24) - 1;
+	private static final int FIRST_TICKET_SHIFT = 24;
+	private static final int SECOND_SHIFT = 27;
+	private static final int SECOND_TICKET_SHIFT = 51;
+	private static final long DOUBLE = 1L << 54;
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private Move() {
+	}
+
+	/**
+	 * Return a move to the given location using the given ticket.
+	 *
+	 * @param to
+	 * @param t
+	 * @return move
+	 */
+	public static long single(int to, Ticket t) {
+		return to | ((long) t.ordinal() << FIRST_TICKET_SHIFT);
+	}
+
+	/**
+	 * Return a double move that goes to first with the ticket t1 and then to
+	 * second with the ticket t2.
+	 *
+	 * @param first
+	 * @param t1
+	 * @param second
+	 * @param t2
+	 * @return move
+	 */
+	public static long doubleMove(int first, Ticket t1, int second, Ticket t2) {
+		return single(first, t1) | ((long) second << SECOND_SHIFT) | ((long) t2.ordinal() << SECOND_TICKET_SHIFT)
+				| DOUBLE;
+	}
+
+	public static boolean isDouble(long move) {
+		return (move & DOUBLE) != 0;
+	}
+
+	public static int firstDestination(long move) {
+		return (int) (move & LOCATION_MASK);
+	}
+
+	public static Ticket firstTicket(long move) {
+		return TICKETS[(int) (move >>> FIRST_TICKET_SHIFT) & 7];
+	}
+
+	public static int secondDestination(long move) {
+		return (int) (move >>> SECOND_SHIFT & LOCATION_MASK);
+	}
+
+	public static Ticket secondTicket(long move) {
+		return TICKETS[(int) (move >>> SECOND_TICKET_SHIFT) & 7];
+	}
+
+	/**
+	 * Return where the player ends up after the move.
+	 *
+	 * @param move
+	 * @return location
+	 */
+	public static int destination(long move) {
+		return isDouble(move) ? secondDestination(move) : firstDestination(move);
+	}
+
+	public static String toString(long move) {
+		String first = firstTicket(move) + " " + firstDestination(move);
+		if (!isDouble(move))
+			return first;
+		return "DOUBLE " + first + ", " + secondTicket(move) + " " + secondDestination(move);
+	}
+
+}
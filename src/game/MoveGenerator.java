@@ -0,0 +1,88 @@
+package game;
+
+import graph.Board;
+import player.Person.Ticket;
+
+/**
+ * Class to list every legal move of a player as packed moves (see
+ * {@link Move})
+ *
+ * A detective can go to any location that is not occupied by another
+ * detective along a link he has a ticket for. MrX can also use a black ticket
+ * instead of any other ticket, which is the only way to take the ship, and
+ * with a double move card he can make two moves in a row.
+ *
+ * Nothing is allocated while generating, as long as the {@link MoveList} is
+ * big enough.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class MoveGenerator {
+
+	// tickets that are tied to one type of transportation, in the order of
+	// the transport bits of Board
+	private static final Ticket[] WAYS = { Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND };
+
+	private MoveGenerator() {
+	}
+
+	/**
+	 * Clear the list and fill it with every legal move of the given player.
+	 *
+	 * @param state
+	 * @param player
+	 * @param out
+	 * @return number of moves
+	 */
+	public static int generate(BoardState state, int player, MoveList out) {
+		out.clear();
+		int position = state.getPosition(player);
+		Board board = state.getBoard();
+		for (int e = board.edgeStart(position); e < board.edgeEnd(position); e++) {
+			int next = board.target(e);
+			if (state.isOccupied(next))
+				continue;
+			int transports = board.transport(e);
+			for (int w = 0; w < WAYS.length; w++) {
+				Ticket t = WAYS[w];
+				if ((transports & (1 << w)) == 0 || state.getTicket(player, t) == 0)
+					continue;
+				out.add(Move.single(next, t));
+				if (player == BoardState.MRX && state.getTicket(player, Ticket.DOUBLE) > 0)
+					addSecondSteps(state, next, t, out);
+			}
+			if (player == BoardState.MRX && state.getTicket(player, Ticket.BLACK) > 0) {
+				out.add(Move.single(next, Ticket.BLACK));
+				if (state.getTicket(player, Ticket.DOUBLE) > 0)
+					addSecondSteps(state, next, Ticket.BLACK, out);
+			}
+		}
+		return out.size();
+	}
+
+	// helper method to add every double move of MrX that starts with going to
+	// first with the ticket t1
+	private static void addSecondSteps(BoardState state, int first, Ticket t1, MoveList out) {
+		Board board = state.getBoard();
+		int player = BoardState.MRX;
+		for (int e = board.edgeStart(first); e < board.edgeEnd(first); e++) {
+			int next = board.target(e);
+			if (state.isOccupied(next))
+				continue;
+			int transports = board.transport(e);
+			for (int w = 0; w < WAYS.length; w++) {
+				Ticket t = WAYS[w];
+				// the first step has used one ticket already
+				int left = state.getTicket(player, t) - (t == t1 ? 1 : 0);
+				if ((transports & (1 << w)) == 0 || left == 0)
+					continue;
+				out.add(Move.doubleMove(first, t1, next, t));
+			}
+			int black = state.getTicket(player, Ticket.BLACK) - (t1 == Ticket.BLACK ? 1 : 0);
+			if (black > 0)
+				out.add(Move.doubleMove(first, t1, next, Ticket.BLACK));
+		}
+	}
+
+}
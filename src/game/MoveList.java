@@ -0,0 +1,50 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of packed moves (see {@link Move}) that is meant to be
+ * cleared and filled again, so that it stops allocating once it has grown to
+ * the largest number of moves it needs.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class MoveList {
+
+	private long[] moves;
+	private int size;
+
+	public MoveList() {
+		moves = new long[64];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(long move) {
+		if (size == moves.length)
+			moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	public long get(int i) {
+		return moves[i];
+	}
+
+	/**
+	 * Replace the i-th move with the given move.
+	 *
+	 * @param i
+	 * @param move
+	 */
+	public void set(int i, long move) {
+		moves[i] = move;
+	}
+
+	public int size() {
+		return size;
+	}
+
+}
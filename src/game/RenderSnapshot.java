@@ -0,0 +1,109 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Immutable picture of a game at one moment, made by the {@link GameLoop}
+ * for the frame to draw
+ *
+ * It has everything the canvas needs, so the Event Dispatch Thread never
+ * touches the {@link GameMaster}, which belongs to the game loop. The
+ * arrays are copied in and out, so a snapshot can be shared by any number
+ * of threads.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class RenderSnapshot {
+
+	// no winner yet
+	public static final int NO_WINNER = -1;
+
+	// location id of each player, indexed as in BoardState
+	private final int[] positions;
+	private final Turn turn;
+	private final int round;
+	// MrX has just shown up
+	private final boolean mrxShown;
+	// the brain of the player whose turn it is is deciding its move
+	private final boolean thinking;
+	// possible moves of the detective moved by the user, and the transport
+	// bits he has tickets for to go to each of them
+	private final int[] moves;
+	private final byte[] moveTransports;
+	private final int winner;
+
+	RenderSnapshot(int[] positions, Turn turn, int round, boolean mrxShown, boolean thinking, int[] moves,
+			byte[] moveTransports, int winner) {
+		this.positions = positions.clone();
+		this.turn = turn;
+		this.round = round;
+		this.mrxShown = mrxShown;
+		this.thinking = thinking;
+		this.moves = moves.clone();
+		this.moveTransports = moveTransports.clone();
+		this.winner = winner;
+	}
+
+	// getter
+	public int getPosition(int player) {
+		return positions[player];
+	}
+
+	public Turn getTurn() {
+		return turn;
+	}
+
+	public int getRound() {
+		return round;
+	}
+
+	public boolean isMrxShown() {
+		return mrxShown;
+	}
+
+	public boolean isThinking() {
+		return thinking;
+	}
+
+	public int getNumOfMoves() {
+		return moves.length;
+	}
+
+	public int getMove(int i) {
+		return moves[i];
+	}
+
+	public byte getMoveTransports(int i) {
+		return moveTransports[i];
+	}
+
+	/**
+	 * getter
+	 * @return the index of the winner in BoardState (MrX or the detective
+	 *         who caught him), or NO_WINNER
+	 */
+	public int getWinner() {
+		return winner;
+	}
+
+	public boolean isGameOver() {
+		return winner != NO_WINNER;
+	}
+
+	/**
+	 * Return true if the user has to move a detective, and false otherwise.
+	 *
+	 * @return boolean
+	 */
+	public boolean isWaitingForUser() {
+		return turn != null && turn != Turn.MrX && winner == NO_WINNER && !thinking;
+	}
+
+	@Override
+	public String toString() {
+		return "RenderSnapshot [turn=" + turn + ", round=" + round + ", positions=" + Arrays.toString(positions)
+				+ ", winner=" + winner + "]";
+	}
+
+}
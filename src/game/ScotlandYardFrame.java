@@ -3,22 +3,25 @@ package game;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Container;
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.GridLayout;
 import java.awt.Image;
-import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
@@ -28,18 +31,24 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
 import javax.swing.border.BevelBorder;
 
-import graph.Node;
+import graph.BoardFile;
+import graph.GridIndex;
 import main.Main;
-import player.Detective;
+import player.MrX;
 import player.Person.Ticket;
 
 /**
  * Class to show the frame of the board game
  * 
  * Has most of the components necessary for the game: canvas (JPanel), graph
- * (ScotlandYardGraph), gm (GameMaster), showMrX (boolean)
+ * (ScotlandYardGraph), loop (GameLoop), showMrX (boolean)
+ * 
+ * The game itself is played by the {@link GameLoop} on a thread of its own.
+ * The frame only draws the last {@link RenderSnapshot} it has sent, and sends
+ * the moves of the user back to it.
  * 
  * @author Shogo Akiyama
  *
@@ -49,105 +58,72 @@ public class ScotlandYardFrame extends JFrame {
 
 	// the canvas contained in the frame where we'll draw everything
 	private JPanel canvas;
-	// graph and pointMap of ScotlandYard
+	// graph of ScotlandYard and the points of its locations by id
 	private ScotlandYardGraph graph;
-	// game master
-	private GameMaster gm;
+	private final int[] pointX;
+	private final int[] pointY;
+	private final GridIndex locations;
+	// index of each location in the possible moves of the snapshot, or -1
+	private final int[] moveIndex;
+	// possible move under the mouse, or 0
+	private int hovered;
+	// game loop, which owns the game master and the brains
+	private final GameLoop loop;
+	// what to draw, only used on the Event Dispatch Thread
+	private RenderSnapshot snapshot;
 
 	// special option for debugging purpose
 	// show MrX always
 	// determined by Main.DEBUG
 	private boolean revealMrX;
 	
+	// sizes of the tokens and the marks of the possible moves in pixels
+	private static final int TOKEN_RADIUS = 13;
+	private static final int MARK_RADIUS = 20;
+	// opacity of the mark under the mouse, from 0 to 255
+	private static final int HOVER_ALPHA = 96;
+	// extra pixels repainted around them, for antialiasing and text
+	private static final int MARGIN = 2;
+	// where the message of a brain thinking is drawn, in a box at the top
+	private static final int MESSAGE_X = 10;
+	private static final int MESSAGE_Y = 20;
+	private static final int MESSAGE_WIDTH = 300;
+	private static final int MESSAGE_HEIGHT = 28;
+
 	final Image img;
 	public final int imgWidth;
 	public final int imgHeight;
 
 	public ScotlandYardFrame() throws IOException {
 		graph = new ScotlandYardGraph();
-		gm = new GameMaster(graph);
 		revealMrX = Main.DEBUG;
 		// read the image
 		img = ImageIO.read(new File("files/sybig.png"));
 		imgWidth = img.getWidth(null);
 		imgHeight = img.getHeight(null) + 23;
 
-		canvas = new JPanel() {
-			private static final long serialVersionUID = 1L;
-
-			@Override
-			public void paint(Graphics graphics) {
-				Graphics2D g = (Graphics2D) graphics;
-				// first draw the map
-				g.drawImage(img, 0, 0, null);
-
-				// if mrx has to show up, do so
-				if (gm.doesMrxShowUp() || revealMrX) {
-					// coloring Mrx
-					Point Mrx = graph.getPointMap().get(gm.getMrx().getPosition().getName());
-					g.setColor(Color.BLACK);
-					g.fillOval(Mrx.x - 13, Mrx.y - 13, 26, 26);
-					g.setColor(Color.WHITE);
-					g.drawString("X", Mrx.x - 3, Mrx.y + 4);
-				}
+		// coordinates of the locations by id
+		BoardFile file = graph.getBoardFile();
+		pointX = new int[graph.getBoard().getNumOfNodes() + 1];
+		pointY = new int[pointX.length];
+		for (int id = 1; id < pointX.length; id++) {
+			pointX[id] = file.getX(id);
+			pointY[id] = file.getY(id);
+		}
 
-				// coloring 5 detectives
-				for (int i = 0; i < 5; i++) {
-					Detective d = gm.getDetectives().get(i);
-					Point place = graph.getPointMap().get(d.getPosition().getName());
-					g.setColor(Turn.identify(i).COLOR);
-					g.fillOval(place.x - 13, place.y - 13, 26, 26);
-					g.setColor(Color.BLACK);
-					g.drawString(d.getName(), place.x - 3, place.y + 4);
-				}
+		// index to find the location under the mouse
+		locations = new GridIndex(graph.getBoard().getNumOfNodes(), pointX, pointY, 2 * MARK_RADIUS);
+		moveIndex = new int[pointX.length];
+		Arrays.fill(moveIndex, -1);
 
-				// check whether there is a winner or not
-				if (!(gm.checkWinner() == null)) {
-					gm.setGameOver(true);
-					gameSetPopup();
-				}
+		// the game belongs to the game loop, which sends back what to draw
+		// decide which brain mrx equips based on Main.MRXTYPE
+		GameMaster gm = new GameMaster(graph);
+		gm.getMrx().setBrain(MrX.createBrain(Main.MRXTYPE, gm.getMrx()));
+		loop = new GameLoop(gm, s -> SwingUtilities.invokeLater(() -> show(s)));
+		snapshot = loop.getSnapshot();
 
-				// ask the user to press start button at the beginning
-				if (gm.getTurn() == null) {
-					System.out.println("press start button: File -> Start");
-
-					// if it is MrX's turn, move him and show his left tickets
-					// and travel log
-				} else if (gm.getTurn() == Turn.MrX) {
-					System.out.println("--------------------------------------------------");
-					System.out.println("Turn of MrX");
-
-					try {
-						gm.moveMrX();
-					} catch (Exception e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-
-					System.out.println("\nTickets");
-					gm.showMrXTickets();
-					System.out.println("\nTravel Log");
-					gm.showTravelLog();
-					gm.nextTurn();
-					repaint();
-
-					// if it is detective's turn, show possible moves of current
-					// detective
-				} else {
-					Detective d = gm.getDetectives().get(gm.getTurn().NUM);
-					System.out.println("--------------------------------------------------");
-					System.out.println("Turn of Detective " + gm.getTurn());
-					for (Node next : d.possibleMoves()) {
-						Point nextPoint = graph.getPointMap().get(next.getName());
-						g.setColor(gm.getTurn().COLOR);
-						g.drawRect(nextPoint.x - 20, nextPoint.y - 20, 40, 40);
-					}
-				}
-				
-				//create each person's status part
-				
-			}
-		};
+		canvas = new BoardCanvas();
 		canvas.setPreferredSize(new Dimension(imgWidth, imgHeight));
 		
 		Container content = this.getContentPane();
@@ -168,18 +144,86 @@ public class ScotlandYardFrame extends JFrame {
 		addMenu();
 		addMouseHandlers();
 
+		loop.start();
 	}
 
-	private void gameSetPopup() {
+	// helper method to draw a new snapshot, on the Event Dispatch Thread
+	private void show(RenderSnapshot s) {
+		boolean ended = !snapshot.isGameOver() && s.isGameOver();
+		RenderSnapshot old = snapshot;
+		snapshot = s;
+		for (int i = 0; i < old.getNumOfMoves(); i++) {
+			moveIndex[old.getMove(i)] = -1;
+		}
+		for (int i = 0; i < s.getNumOfMoves(); i++) {
+			moveIndex[s.getMove(i)] = i;
+		}
+		repaintChanges(old, s);
+		// the station under the mouse may not be a possible move any more
+		if (hovered != 0 && (moveIndex[hovered] < 0 || !s.isWaitingForUser()))
+			setHovered(0);
+		// check whether there is a winner or not
+		if (ended)
+			gameSetPopup(s);
+	}
+
+	// helper method to repaint only the parts of the canvas where the two
+	// snapshots look different
+	private void repaintChanges(RenderSnapshot old, RenderSnapshot s) {
+		for (int i = 0; i < BoardState.NUM_PLAYERS; i++) {
+			boolean wasDrawn = isDrawn(old, i);
+			boolean drawn = isDrawn(s, i);
+			if (wasDrawn == drawn && old.getPosition(i) == s.getPosition(i))
+				continue;
+			if (wasDrawn)
+				repaintAround(old.getPosition(i));
+			if (drawn)
+				repaintAround(s.getPosition(i));
+		}
+		// the color of the marks of the possible moves is the one of the turn
+		if (!sameMoves(old, s) || (old.getNumOfMoves() > 0 && old.getTurn() != s.getTurn())) {
+			for (int i = 0; i < old.getNumOfMoves(); i++) {
+				repaintAround(old.getMove(i));
+			}
+			for (int i = 0; i < s.getNumOfMoves(); i++) {
+				repaintAround(s.getMove(i));
+			}
+		}
+		if (old.isThinking() != s.isThinking() || (s.isThinking() && old.getTurn() != s.getTurn()))
+			canvas.repaint(MESSAGE_X, 0, MESSAGE_WIDTH, MESSAGE_HEIGHT);
+	}
+
+	// helper method to check if the token of a player is drawn
+	private boolean isDrawn(RenderSnapshot s, int player) {
+		return player != BoardState.MRX || s.isMrxShown() || revealMrX;
+	}
+
+	// helper method to compare the possible moves of two snapshots
+	private static boolean sameMoves(RenderSnapshot a, RenderSnapshot b) {
+		if (a.getNumOfMoves() != b.getNumOfMoves())
+			return false;
+		for (int i = 0; i < a.getNumOfMoves(); i++) {
+			if (a.getMove(i) != b.getMove(i))
+				return false;
+		}
+		return true;
+	}
+
+	// helper method to repaint the token and the mark of a location
+	private void repaintAround(int id) {
+		canvas.repaint(pointX[id] - MARK_RADIUS - MARGIN, pointY[id] - MARK_RADIUS - MARGIN,
+				2 * (MARK_RADIUS + MARGIN) + 1, 2 * (MARK_RADIUS + MARGIN) + 1);
+	}
+
+	private void gameSetPopup(RenderSnapshot s) {
 		JFrame popup = new JFrame();
 		popup.setSize(280, 80);
 		JPanel panel = new JPanel();
 		popup.add(panel);
 		JLabel message = new JLabel();
-		if (gm.checkWinner() instanceof player.MrX) {
+		if (s.getWinner() == BoardState.MRX) {
 			message.setText("MrX wins! Thanks for playing!");
-		}
-		if (gm.checkWinner() instanceof player.Detective) {
+		} else {
 			message.setText("Team Detective wins! Congratuations!!");
 		}
 		panel.add(message);
@@ -195,7 +239,7 @@ public class ScotlandYardFrame extends JFrame {
 		start.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				gm.gameStart();
+				loop.startGame();
 			}
 		});
 		file.add(start);
@@ -212,82 +256,226 @@ public class ScotlandYardFrame extends JFrame {
 	}
 
 	private void addMouseHandlers() {
-		canvas.addMouseListener(new MouseAdapter() {
+		MouseAdapter handler = new MouseAdapter() {
 
 			@Override
 			public void mouseClicked(MouseEvent e) {
-				if (!(gm.getTurn() == null)) {
-					// if the game is ended, exit
-					if (gm.isGameOver() == true)
-						System.exit(0);
-
-					// store where the user clicked
-					Point clicked = e.getPoint();
-
-					Detective d = gm.getDetectives().get(gm.getTurn().NUM);
-
-					// if there is no possible moves, skip his turn
-					if (d.possibleMoves().size() == 0) {
-						System.out.println("Detective " + d.getName() + " cannot move");
-						System.out.println("Skip his turn");
-						gm.nextTurn();
-					}
-
-					// make the detective move to the point the user clicked
-					for (Node n : d.possibleMoves()) {
-						if (20 >= clicked.distance(graph.getPointMap().get(n.getName()))) {
-							List<String> list = new ArrayList<String>();
-							for (String way : d.getPosition().getWay(n)) {
-								list.add(way);
-							}
-							// if there is more than one way to go, let the user
-							// choose by pop up menu
-							if (list.size() > 1) {
-								PopupMenu menu = new PopupMenu(d, n, list);
-								menu.show(e.getComponent(), e.getX(), e.getY());
-								menu.setVisible(true);
-								// if there is only one way, move the detective
-								// to the place
-							} else {
-								d.moveTo(n, Ticket.valueOf(list.get(0)), gm.getMrx());
-								System.out.println("");
-								d.showLeftTickets();
-								gm.nextTurn();
-							}
-							break;
-						}
-					}
+				RenderSnapshot s = snapshot;
+				// if the game is ended, exit
+				if (s.isGameOver())
+					System.exit(0);
+
+				// find the possible move the user clicked
+				int next = moveAt(e.getX(), e.getY());
+				if (next == 0)
+					return;
+				int player = s.getTurn().NUM;
+				Ticket[] tickets = GameLoop.ticketsOf(s.getMoveTransports(moveIndex[next]));
+				// if there is more than one way to go, let the user
+				// choose by pop up menu
+				if (tickets.length > 1) {
+					PopupMenu menu = new PopupMenu(player, next, tickets);
+					menu.show(e.getComponent(), e.getX(), e.getY());
+					menu.setVisible(true);
+					// if there is only one way, move the detective
+					// to the place
+				} else {
+					loop.moveDetective(player, next, tickets[0]);
 				}
-				// Finally, redraw
-				canvas.repaint();
 			}
-		});
+
+			@Override
+			public void mouseMoved(MouseEvent e) {
+				setHovered(moveAt(e.getX(), e.getY()));
+			}
+
+			@Override
+			public void mouseExited(MouseEvent e) {
+				setHovered(0);
+			}
+		};
+		canvas.addMouseListener(handler);
+		canvas.addMouseMotionListener(handler);
+	}
+
+	// helper method to find the possible move of the detective moved by the
+	// user at the given pixel, or 0 if there is none
+	private int moveAt(int px, int py) {
+		if (!snapshot.isWaitingForUser())
+			return 0;
+		// the marks are squares, and so is the area of each that takes a click
+		return locations.nearestInSquare(px, py, MARK_RADIUS, id -> moveIndex[id] >= 0);
+	}
+
+	// helper method to highlight the possible move under the mouse
+	private void setHovered(int id) {
+		if (id == hovered)
+			return;
+		if (hovered != 0)
+			repaintAround(hovered);
+		if (id != 0)
+			repaintAround(id);
+		hovered = id;
+		canvas.setCursor(Cursor.getPredefinedCursor(id == 0 ? Cursor.DEFAULT_CURSOR : Cursor.HAND_CURSOR));
 	}
 
 	class PopupMenu extends JPopupMenu {
 
-		public PopupMenu(Detective d, Node n, List<String> list) {
-			for (String s : list) {
-				add(makeMenuItem(d, n, s));
+		public PopupMenu(int player, int next, Ticket[] tickets) {
+			for (Ticket t : tickets) {
+				add(makeMenuItem(player, next, t));
 			}
 		}
 
 		// helper method to make Menu item
-		private JMenuItem makeMenuItem(Detective d, Node n, String s) {
-			JMenuItem item = new JMenuItem(s);
+		private JMenuItem makeMenuItem(int player, int next, Ticket t) {
+			JMenuItem item = new JMenuItem(t.name());
 			item.addActionListener(new ActionListener() {
 				public void actionPerformed(ActionEvent e) {
-					d.moveTo(n, Ticket.valueOf(s), gm.getMrx());
-					System.out.println("");
-					d.showLeftTickets();
-					gm.nextTurn();
-					canvas.repaint();
+					loop.moveDetective(player, next, t);
 				}
 			});
 			return item;
 		}
 	}
 	
+	/**
+	 * Class to draw the board and the last snapshot of the game
+	 * 
+	 * The map is copied once into an image in the format of the screen,
+	 * kept in video memory as a VolatileImage when possible, so that drawing
+	 * it is a plain copy and not a conversion of the PNG. Only the part of the
+	 * map inside the clip is copied, and only the tokens and marks inside the
+	 * clip are drawn, so repainting the dirty rectangles of
+	 * {@link ScotlandYardFrame#repaintChanges(RenderSnapshot, RenderSnapshot)}
+	 * costs as much as their area.
+	 * 
+	 * @author Shogo Akiyama
+	 *
+	 */
+	class BoardCanvas extends JPanel {
+
+		// copy of the map in video memory, or null
+		private VolatileImage volatileLayer;
+		// copy of the map in the format of the screen, used when there is no
+		// video memory
+		private Image compatibleLayer;
+
+		@Override
+		public void paint(Graphics graphics) {
+			Graphics2D g = (Graphics2D) graphics;
+			RenderSnapshot s = snapshot;
+			Rectangle clip = g.getClipBounds();
+			if (clip == null)
+				clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+			// first draw the map
+			g.setColor(getBackground());
+			g.fillRect(clip.x, clip.y, clip.width, clip.height);
+			do {
+				Image layer = validLayer();
+				g.drawImage(layer, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, clip.x, clip.y,
+						clip.x + clip.width, clip.y + clip.height, null);
+			} while (volatileLayer != null && volatileLayer.contentsLost());
+
+			// if mrx has to show up, do so
+			if (isDrawn(s, BoardState.MRX)) {
+				// coloring Mrx
+				int id = s.getPosition(BoardState.MRX);
+				if (isInside(clip, id, TOKEN_RADIUS)) {
+					g.setColor(Color.BLACK);
+					g.fillOval(pointX[id] - TOKEN_RADIUS, pointY[id] - TOKEN_RADIUS, 2 * TOKEN_RADIUS,
+							2 * TOKEN_RADIUS);
+					g.setColor(Color.WHITE);
+					g.drawString("X", pointX[id] - 3, pointY[id] + 4);
+				}
+			}
+
+			// coloring 5 detectives
+			for (int i = 0; i < BoardState.NUM_DETECTIVES; i++) {
+				int id = s.getPosition(i);
+				if (!isInside(clip, id, TOKEN_RADIUS))
+					continue;
+				g.setColor(Turn.identify(i).COLOR);
+				g.fillOval(pointX[id] - TOKEN_RADIUS, pointY[id] - TOKEN_RADIUS, 2 * TOKEN_RADIUS, 2 * TOKEN_RADIUS);
+				g.setColor(Color.BLACK);
+				g.drawString(Turn.identify(i).name(), pointX[id] - 3, pointY[id] + 4);
+			}
+
+			// show possible moves of current detective
+			for (int i = 0; i < s.getNumOfMoves(); i++) {
+				int id = s.getMove(i);
+				if (!isInside(clip, id, MARK_RADIUS))
+					continue;
+				Color color = s.getTurn().COLOR;
+				// fill the mark of the possible move under the mouse
+				if (id == hovered) {
+					g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), HOVER_ALPHA));
+					g.fillRect(pointX[id] - MARK_RADIUS, pointY[id] - MARK_RADIUS, 2 * MARK_RADIUS, 2 * MARK_RADIUS);
+				}
+				g.setColor(color);
+				g.drawRect(pointX[id] - MARK_RADIUS, pointY[id] - MARK_RADIUS, 2 * MARK_RADIUS, 2 * MARK_RADIUS);
+			}
+
+			if (s.isThinking()) {
+				g.setColor(Color.BLACK);
+				g.drawString("Turn of " + s.getTurn() + ": thinking...", MESSAGE_X, MESSAGE_Y);
+			}
+
+			//create each person's status part
+			
+		}
+
+		// helper method to check if something of the given radius around a
+		// location can be inside the clip
+		private boolean isInside(Rectangle clip, int id, int radius) {
+			int r = radius + MARGIN;
+			return clip.intersects(pointX[id] - r, pointY[id] - r, 2 * r + 1, 2 * r + 1);
+		}
+
+		// helper method to get the copy of the map, making it or drawing it
+		// again if it has been lost
+		private Image validLayer() {
+			GraphicsConfiguration gc = getGraphicsConfiguration();
+			if (gc == null)
+				return img;
+			if (volatileLayer == null && compatibleLayer == null)
+				newLayer(gc);
+			if (volatileLayer == null)
+				return compatibleLayer;
+			int status = volatileLayer.validate(gc);
+			if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+				volatileLayer.flush();
+				newLayer(gc);
+				if (volatileLayer == null)
+					return compatibleLayer;
+			} else if (status == VolatileImage.IMAGE_RESTORED) {
+				drawMap(volatileLayer.createGraphics());
+			}
+			return volatileLayer;
+		}
+
+		// helper method to make a copy of the map, in video memory if it can
+		// and in a compatible image otherwise
+		private void newLayer(GraphicsConfiguration gc) {
+			volatileLayer = createVolatileImage(img.getWidth(null), img.getHeight(null));
+			if (volatileLayer == null) {
+				BufferedImage layer = gc.createCompatibleImage(img.getWidth(null), img.getHeight(null));
+				drawMap(layer.createGraphics());
+				compatibleLayer = layer;
+				return;
+			}
+			volatileLayer.validate(gc);
+			drawMap(volatileLayer.createGraphics());
+		}
+
+		private void drawMap(Graphics2D g) {
+			g.drawImage(img, 0, 0, null);
+			g.dispose();
+		}
+
+	}
+
 	/**
 	 * Class to show all of data of the game 
 	 * 
@@ -1,16 +1,20 @@
 package game;
 
 import java.awt.Point;
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.TreeMap;
 
+import graph.AdjacencyBits;
+import graph.Board;
+import graph.BoardFile;
+import graph.DistanceTable;
 import graph.Graph;
 import graph.Node;
+import graph.PathFinder;
 
 /**
  * Class to represent a graph of Scotland Yard
@@ -20,18 +24,57 @@ import graph.Node;
  */
 public class ScotlandYardGraph {
 
+	// names of the types of transportation by the bit number of the Board
+	private static final String[] WAYS = { "TAXI", "BUS", "UNDERGROUND", "BLACK" };
+
 	// Map from location names (such as "1") to their (x, y) coordinates on the
 	// screen
 	// Use the built-in Point class in Java
-	private Map<String, Point> pointMap;
-	// the graph
-	private Graph graph;
+	private volatile Map<String, Point> pointMap;
+	// the board and the coordinates of its locations
+	private final BoardFile file;
+	// the same graph as an int-indexed board
+	private final Board board;
+	// the graph and its nodes by their id on the board, built on first use
+	private volatile Graph graph;
+	private volatile Node[] nodes;
+	// neighbors of every location as bitsets, built on first use
+	private volatile AdjacencyBits adjacency;
+	// distances between all locations, built on first use
+	private volatile DistanceTable distances;
 
 	public ScotlandYardGraph() throws IOException {
-		// read the map of locations to points
-		pointMap = readPositionPoints("files/scotpos.txt");
-		// read the graph
-		graph = readGraphFromFile(new FileInputStream("files/scotmap.txt"));
+		this("files/scotmap.txt", "files/scotpos.txt");
+	}
+
+	/**
+	 * Create a graph from the given text files (see
+	 * {@link #readGraphFromFile(InputStream)} and
+	 * {@link #readPositionPoints(String)}).
+	 * 
+	 * @param mapFile
+	 * @param positionFile
+	 * @throws IOException
+	 */
+	public ScotlandYardGraph(String mapFile, String positionFile) throws IOException {
+		this(BoardFile.readText(mapFile, positionFile));
+	}
+
+	/**
+	 * Create a graph of the given board, for example one loaded from a binary
+	 * file by {@link BoardFile#read(java.nio.file.Path)}. Only the board is
+	 * ready at once: the {@link Graph} of nodes, the points and the tables are
+	 * built the first time they are needed, so that a large board that is
+	 * only searched through the {@link Board} loads quickly.
+	 * 
+	 * @param file
+	 *            board with the coordinates of every location
+	 */
+	public ScotlandYardGraph(BoardFile file) {
+		if (!file.hasCoordinates())
+			throw new IllegalArgumentException("the locations have no coordinates");
+		this.file = file;
+		this.board = file.getBoard();
 	}
 
 	/**
@@ -64,45 +107,45 @@ public class ScotlandYardGraph {
 	 * @throws Exception
 	 */
 	public Graph readGraphFromFile(InputStream in) throws IOException {
+		return toGraph(BoardFile.readMap(in));
+	}
+
+	// helper method to build the nodes and edges of a board, in the order of
+	// the ids and types of transportation
+	private static Graph toGraph(Board b) {
 		Graph retVal = new Graph();
-		@SuppressWarnings("resource")
-		Scanner sc = new Scanner(in);
-		int numNode = sc.nextInt();
-		int numEdge = sc.nextInt();
-
-		while (sc.hasNextLine()) {
-			String line = sc.nextLine();
-			if (line.isEmpty())
-				continue;
-			int index = line.indexOf(" ");
-			int lastIndex = line.lastIndexOf(" ");
-			Node n1 = retVal.getOrCreateNode(line.substring(0, index));
-			Node n2 = retVal.getOrCreateNode(line.substring(index + 1, lastIndex));
-			String initial = line.substring(lastIndex + 1);
-			String way = "";
-			switch (initial) {
-			case "T":
-				way = "TAXI";
-				break;
-			case "B":
-				way = "BUS";
-				break;
-			case "U":
-				way = "UNDERGROUND";
-				break;
-			case "S":
-				way = "BLACK";
-				break;
+		for (int id = 1; id <= b.getNumOfNodes(); id++) {
+			retVal.getOrCreateNode(String.valueOf(id));
+		}
+		for (int id = 1; id <= b.getNumOfNodes(); id++) {
+			Node n1 = retVal.getOrCreateNode(String.valueOf(id));
+			for (int e = b.edgeStart(id); e < b.edgeEnd(id); e++) {
+				if (b.target(e) < id)
+					continue;
+				Node n2 = retVal.getOrCreateNode(String.valueOf(b.target(e)));
+				for (int bit = Board.TAXI; bit <= Board.BLACK; bit <<= 1) {
+					if ((b.transport(e) & bit) != 0)
+						n2.addUndirectedEdgeToNode(n1, WAYS[Integer.numberOfTrailingZeros(bit)]);
+				}
 			}
-			n2.addUndirectedEdgeToNode(n1, way);
 		}
-		if (!(retVal.getNumOfAllNodes() == numNode))
-			throw new IOException("num of nodes does not match: " + retVal.getNumOfAllNodes());
-		if (!(retVal.getNumOfAllWays() == numEdge))
-			throw new IOException("num of edges does not match: " + retVal.getNumOfAllWays());
 		return retVal;
 	}
 
+	/**
+	 * Read a Scotland Yard graph file from an input stream, in the same format
+	 * as {@link #readGraphFromFile(InputStream)}, into an immutable
+	 * {@link Board}. The location numbers in the file are used as the ids of
+	 * the nodes.
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public Board readBoardFromFile(InputStream in) throws IOException {
+		return BoardFile.readMap(in);
+	}
+
 	/**
 	 * Read from the given inputstream a mapping of numbered locations on the
 	 * Scotland Yard game board to their corresponding x y coordinates, in a
@@ -140,37 +183,168 @@ public class ScotlandYardGraph {
 	 * @throws IOException
 	 */
 	public Map<String, Point> readPositionPoints(String filename) throws IOException {
-		Map<String, Point> map = new TreeMap<String, Point>();
-		@SuppressWarnings("resource")
-		Scanner sc = new Scanner(new File(filename));
-		int numNode = sc.nextInt();
-
-		while (sc.hasNextLine()) {
-			String line = sc.nextLine();
-			if (line.isEmpty())
-				continue;
-			int index = line.indexOf(" ");
-			int lastIndex = line.lastIndexOf(" ");
-			Point p = new Point(Integer.parseInt(line.substring(index + 1, lastIndex)),
-					Integer.parseInt(line.substring(lastIndex + 1)));
-			map.put(line.substring(0, index), p);
+		int[][] points;
+		try (InputStream in = new FileInputStream(filename)) {
+			points = BoardFile.readPositions(in, board.getNumOfNodes());
 		}
+		return toPointMap(points[0], points[1]);
+	}
 
-		if (!(map.size() == numNode)) {
-			System.out.println("num of the nodes does not match. return null: " + map.size());
-			return null;
+	// helper method to make the map of points
+	private Map<String, Point> toPointMap(int[] x, int[] y) {
+		Map<String, Point> map = new TreeMap<String, Point>();
+		for (int id = 1; id <= board.getNumOfNodes(); id++) {
+			map.put(String.valueOf(id), new Point(x[id], y[id]));
 		}
 		return map;
 	}
 
-	// getter
+	/**
+	 * Return the map from location names to their points on the screen. It is
+	 * built the first time this method is called and then shared.
+	 * 
+	 * @return pointMap
+	 */
 	public Map<String, Point> getPointMap() {
-		return pointMap;
+		Map<String, Point> map = pointMap;
+		if (map == null) {
+			synchronized (this) {
+				map = pointMap;
+				if (map == null) {
+					int numNodes = board.getNumOfNodes();
+					int[] x = new int[numNodes + 1];
+					int[] y = new int[numNodes + 1];
+					for (int id = 1; id <= numNodes; id++) {
+						x[id] = file.getX(id);
+						y[id] = file.getY(id);
+					}
+					map = Collections.unmodifiableMap(toPointMap(x, y));
+					pointMap = map;
+				}
+			}
+		}
+		return map;
 	}
 
 	// getter
+	public BoardFile getBoardFile() {
+		return file;
+	}
+
+	/**
+	 * Return the graph of nodes. It is built from the board the first time
+	 * this method or {@link #getNode(int)} is called and then shared.
+	 * 
+	 * @return graph
+	 */
 	public Graph getGraph() {
-		return graph;
+		Graph g = graph;
+		if (g == null) {
+			buildGraph();
+			g = graph;
+		}
+		return g;
+	}
+
+	// helper method to build the graph and the nodes by id once
+	private synchronized Node[] buildGraph() {
+		if (nodes == null) {
+			Graph g = toGraph(board);
+			Node[] array = new Node[board.getNumOfNodes() + 1];
+			for (int id = 1; id <= board.getNumOfNodes(); id++) {
+				array[id] = g.getOrCreateNode(String.valueOf(id));
+			}
+			graph = g;
+			nodes = array;
+		}
+		return nodes;
+	}
+
+	// getter
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Return the neighbors of every location as bitsets. They are built the
+	 * first time this method is called and then shared.
+	 * 
+	 * @return adjacency
+	 */
+	public AdjacencyBits getAdjacencyBits() {
+		AdjacencyBits bits = adjacency;
+		if (bits == null) {
+			synchronized (this) {
+				bits = adjacency;
+				if (bits == null) {
+					bits = new AdjacencyBits(board);
+					adjacency = bits;
+				}
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Create a {@link PathFinder} for the board with the given cost of each
+	 * type of transportation, which uses the points of the locations on the
+	 * screen for A*.
+	 * 
+	 * @param costs
+	 *            cost of TAXI, BUS, UNDERGROUND and BLACK (the ship)
+	 * @return path finder
+	 */
+	public PathFinder createPathFinder(double[] costs) {
+		double[] x = new double[board.getNumOfNodes() + 1];
+		double[] y = new double[board.getNumOfNodes() + 1];
+		for (int id = 1; id <= board.getNumOfNodes(); id++) {
+			x[id] = file.getX(id);
+			y[id] = file.getY(id);
+		}
+		return new PathFinder(board, costs, x, y);
+	}
+
+	/**
+	 * Return the node of the graph for the given location id of the board.
+	 * 
+	 * @param id
+	 * @return node
+	 */
+	public Node getNode(int id) {
+		Node[] array = nodes;
+		if (array == null)
+			array = buildGraph();
+		return array[id];
+	}
+
+	/**
+	 * Return the location id of the board for the given node of the graph.
+	 * 
+	 * @param n
+	 * @return id
+	 */
+	public int idOf(Node n) {
+		return Integer.parseInt(n.getName());
+	}
+
+	/**
+	 * Return the table of distances between all locations of the board. The
+	 * table is built the first time this method is called and then shared.
+	 * 
+	 * @return distances
+	 */
+	public DistanceTable getDistanceTable() {
+		DistanceTable table = distances;
+		if (table == null) {
+			synchronized (this) {
+				table = distances;
+				if (table == null) {
+					table = new DistanceTable(board);
+					distances = table;
+				}
+			}
+		}
+		return table;
 	}
 
 }
@@ -0,0 +1,51 @@
+package game;
+
+import player.Person.Ticket;
+
+/**
+ * Zobrist keys of the parts of a game, used to hash a {@link BoardState}
+ * incrementally: the hash is the XOR of the keys of every player's position
+ * and ticket counts, so changing one of them only takes two XORs.
+ *
+ * The keys are not kept in a table but computed by mixing the numbers that
+ * identify them, so there is a key for every location of any board. The key
+ * of location 0 and of a count of 0 is 0, so an empty state hashes to 0.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class Zobrist {
+
+	private static final long POSITION = 0x9E3779B97F4A7C15L;
+	private static final long TICKET = 0xC2B2AE3D27D4EB4FL;
+	private static final long TURN = 0x165667B19E3779F9L;
+
+	private Zobrist() {
+	}
+
+	public static long positionKey(int player, int id) {
+		return id == 0 ? 0 : mix(POSITION + ((long) player << 32 | id));
+	}
+
+	public static long ticketKey(int player, Ticket t, int num) {
+		return num == 0 ? 0 : mix(TICKET + ((long) (player * BoardState.NUM_TICKETS + t.ordinal()) << 32 | num));
+	}
+
+	/**
+	 * Return the key of whose turn it is, or 0 before the start.
+	 *
+	 * @param turn
+	 * @return key
+	 */
+	public static long turnKey(Turn turn) {
+		return turn == null ? 0 : mix(TURN + turn.ordinal());
+	}
+
+	// the finalizer of SplitMix64
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
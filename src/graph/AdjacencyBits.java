@@ -0,0 +1,174 @@
+package graph;
+
+/**
+ * Class to hold the neighbors of every node of a {@link Board} as bitsets,
+ * one for each combination of types of transportation, and to move a whole
+ * set of nodes by one step at once.
+ *
+ * A set of nodes is an array of {@link #getNumOfWords()} longs with bit id
+ * set for node id, so the 199 locations of Scotland Yard fit in four longs.
+ * The neighbors of a node with a mask of transport bits are OR-ed together
+ * when the table is built, so that one step of a set costs one OR per word
+ * for each node in the set, whatever the mask is. The table grows with the
+ * square of the number of nodes, so it is only built for boards of up to
+ * {@link #MAX_TABLE_WORDS} longs; on a larger board a step walks the edges of
+ * each node in the set instead.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class AdjacencyBits {
+
+	private static final int NUM_MASKS = Board.ALL;
+	// largest table to build, 32 MB, which is a board of about 4000 nodes
+	public static final long MAX_TABLE_WORDS = 1L << 22;
+
+	private final Board board;
+	private final int numNodes;
+	private final int numWords;
+	// neighbors of node id with the transports of mask are the numWords longs
+	// from ((mask - 1) * (numNodes + 1) + id) * numWords, or null if the
+	// board is too large for the table
+	private final long[] rows;
+
+	public AdjacencyBits(Board board) {
+		this.board = board;
+		numNodes = board.getNumOfNodes();
+		numWords = wordsFor(numNodes);
+		if ((long) NUM_MASKS * (numNodes + 1) * numWords > MAX_TABLE_WORDS) {
+			rows = null;
+			return;
+		}
+		rows = new long[NUM_MASKS * (numNodes + 1) * numWords];
+		// neighbors by each single type of transportation
+		for (int id = 1; id <= numNodes; id++) {
+			for (int e = board.edgeStart(id); e < board.edgeEnd(id); e++) {
+				int t = board.target(e);
+				int transport = board.transport(e);
+				for (int bit = 1; bit <= Board.BLACK; bit <<= 1) {
+					if ((transport & bit) != 0)
+						rows[row(bit, id) + (t >>> 6)] |= 1L << t;
+				}
+			}
+		}
+		// a combination is the union of its single types
+		for (int mask = 1; mask <= NUM_MASKS; mask++) {
+			if (Integer.bitCount(mask) == 1)
+				continue;
+			int low = Integer.lowestOneBit(mask);
+			for (int id = 1; id <= numNodes; id++) {
+				int dst = row(mask, id);
+				int a = row(low, id);
+				int b = row(mask ^ low, id);
+				for (int w = 0; w < numWords; w++) {
+					rows[dst + w] = rows[a + w] | rows[b + w];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the number of longs needed for a set of nodes 1 to numNodes.
+	 *
+	 * @param numNodes
+	 * @return number of longs
+	 */
+	public static int wordsFor(int numNodes) {
+		return (numNodes >>> 6) + 1;
+	}
+
+	// helper method to find the first word of a row
+	private int row(int mask, int id) {
+		return ((mask - 1) * (numNodes + 1) + id) * numWords;
+	}
+
+	/**
+	 * Put every node that is one step away from a node of the frontier, by
+	 * one of the given types of transportation, in the output set. The two
+	 * arrays must not be the same.
+	 *
+	 * @param frontier
+	 * @param transports
+	 *            bitmask of {@link Board} transport bits, 0 for no step
+	 * @param out
+	 *            set to overwrite
+	 */
+	public void expand(long[] frontier, int transports, long[] out) {
+		for (int w = 0; w < numWords; w++) {
+			out[w] = 0;
+		}
+		transports &= NUM_MASKS;
+		if (transports == 0)
+			return;
+		if (rows == null) {
+			expandEdges(frontier, transports, out);
+			return;
+		}
+		int base = (transports - 1) * (numNodes + 1) * numWords;
+		for (int fw = 0; fw < numWords; fw++) {
+			long bits = frontier[fw];
+			while (bits != 0) {
+				int r = base + ((fw << 6) + Long.numberOfTrailingZeros(bits)) * numWords;
+				bits &= bits - 1;
+				for (int w = 0; w < numWords; w++) {
+					out[w] |= rows[r + w];
+				}
+			}
+		}
+	}
+
+	// helper method to expand a set along the edges of the board, when there
+	// is no table
+	private void expandEdges(long[] frontier, int transports, long[] out) {
+		for (int fw = 0; fw < numWords; fw++) {
+			long bits = frontier[fw];
+			while (bits != 0) {
+				int id = (fw << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				for (int e = board.edgeStart(id); e < board.edgeEnd(id); e++) {
+					if ((board.transport(e) & transports) != 0) {
+						int t = board.target(e);
+						out[t >>> 6] |= 1L << t;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return true if node b is one step away from node a by one of the given
+	 * types of transportation, and false otherwise.
+	 *
+	 * @param a
+	 * @param b
+	 * @param transports
+	 * @return boolean
+	 */
+	public boolean isNeighbor(int a, int b, int transports) {
+		transports &= NUM_MASKS;
+		if (rows == null)
+			return (board.transportsBetween(a, b) & transports) != 0;
+		return transports != 0 && (rows[row(transports, a) + (b >>> 6)] & (1L << b)) != 0;
+	}
+
+	// getter
+	public int getNumOfNodes() {
+		return numNodes;
+	}
+
+	// getter
+	public int getNumOfWords() {
+		return numWords;
+	}
+
+	/**
+	 * Return true if the neighbors are kept in a table, and false if a step
+	 * walks the edges of the board.
+	 *
+	 * @return boolean
+	 */
+	public boolean hasTable() {
+		return rows != null;
+	}
+
+}
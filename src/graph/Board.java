@@ -0,0 +1,303 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, int-indexed representation of a game board in compressed
+ * sparse row (CSR) form.
+ *
+ * Nodes are numbered from 1 to {@link #getNumOfNodes()}. All of the edges going
+ * out of node id are stored next to each other, from {@link #edgeStart(int)}
+ * (inclusive) to {@link #edgeEnd(int)} (exclusive), sorted by the id of the
+ * target node. Parallel links between the same two nodes are merged into one
+ * edge, and the types of transportation of the edge are stored as a bitmask of
+ * {@link #TAXI}, {@link #BUS}, {@link #UNDERGROUND} and {@link #BLACK}.
+ *
+ * Unlike {@link Graph}, a Board cannot be changed once it is created, so one
+ * instance can be shared by any number of games.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class Board {
+
+	// bits of the types of transportation
+	public static final byte TAXI = 1;
+	public static final byte BUS = 2;
+	public static final byte UNDERGROUND = 4;
+	// ship (ferry), which requires black card
+	public static final byte BLACK = 8;
+	public static final byte ALL = TAXI | BUS | UNDERGROUND | BLACK;
+
+	private final int numNodes;
+	private final int numWays;
+	// edges of node id are from offsets[id] to offsets[id + 1]
+	private final int[] offsets;
+	private final int[] targets;
+	private final byte[] transports;
+
+	/**
+	 * Create a new board with the given number of nodes from a list of
+	 * undirected links. The i-th link connects from[i] and to[i] using the
+	 * types of transportation in type[i].
+	 *
+	 * @param numNodes
+	 * @param from
+	 * @param to
+	 * @param type
+	 * @param numLinks
+	 *            the number of links to read from the arrays
+	 * @throws IllegalArgumentException
+	 *             if a link has a node id out of range or no transportation
+	 */
+	public Board(int numNodes, int[] from, int[] to, byte[] type, int numLinks) {
+		this.numNodes = numNodes;
+
+		// count the degree of each node, shifted by one so that the prefix
+		// sum directly gives the start of every row
+		int[] start = new int[numNodes + 2];
+		for (int i = 0; i < numLinks; i++) {
+			checkLink(from[i], to[i], type[i]);
+			start[from[i] + 1]++;
+			if (from[i] != to[i])
+				start[to[i] + 1]++;
+		}
+		for (int id = 1; id <= numNodes + 1; id++) {
+			start[id] += start[id - 1];
+		}
+
+		// each directed edge is packed as (target << 8 | transport) so that
+		// sorting a row sorts it by target
+		long[] packed = new long[start[numNodes + 1]];
+		int[] fill = Arrays.copyOf(start, start.length);
+		for (int i = 0; i < numLinks; i++) {
+			packed[fill[from[i]]++] = ((long) to[i] << 8) | type[i];
+			if (from[i] != to[i])
+				packed[fill[to[i]]++] = ((long) from[i] << 8) | type[i];
+		}
+
+		// sort each row and merge the parallel links
+		offsets = new int[numNodes + 2];
+		int count = 0;
+		for (int id = 0; id <= numNodes; id++) {
+			offsets[id] = count;
+			Arrays.sort(packed, start[id], start[id + 1]);
+			for (int e = start[id]; e < start[id + 1]; e++) {
+				if (count > offsets[id] && (packed[count - 1] >>> 8) == (packed[e] >>> 8))
+					packed[count - 1] |= packed[e] & ALL;
+				else
+					packed[count++] = packed[e];
+			}
+		}
+		offsets[numNodes + 1] = count;
+
+		targets = new int[count];
+		transports = new byte[count];
+		for (int e = 0; e < count; e++) {
+			targets[e] = (int) (packed[e] >>> 8);
+			transports[e] = (byte) (packed[e] & ALL);
+		}
+		numWays = countWays();
+	}
+
+	// constructor for arrays that are already in CSR form
+	private Board(int numNodes, int[] offsets, int[] targets, byte[] transports) {
+		this.numNodes = numNodes;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.transports = transports;
+		numWays = countWays();
+	}
+
+	/**
+	 * Create a board from arrays that are already in the form of
+	 * {@link #edgeStart(int)}, {@link #target(int)} and
+	 * {@link #transport(int)}, such as those of a saved board (see
+	 * {@link BoardFile}). The arrays are used as they are, not copied, and
+	 * must not be changed afterwards.
+	 *
+	 * @param numNodes
+	 * @param offsets
+	 *            numNodes + 2 starts of the rows of nodes 0 to numNodes + 1,
+	 *            where node 0 has no edges
+	 * @param targets
+	 * @param transports
+	 * @return board
+	 * @throws IllegalArgumentException
+	 *             if the arrays are not a valid board
+	 */
+	public static Board fromCsr(int numNodes, int[] offsets, int[] targets, byte[] transports) {
+		if (numNodes < 0 || offsets.length != numNodes + 2 || offsets[0] != 0 || offsets[1] != 0)
+			throw new IllegalArgumentException("invalid offsets for " + numNodes + " nodes");
+		if (offsets[numNodes + 1] != targets.length || transports.length != targets.length)
+			throw new IllegalArgumentException("number of edges does not match: " + targets.length);
+		for (int id = 1; id <= numNodes; id++) {
+			if (offsets[id + 1] < offsets[id])
+				throw new IllegalArgumentException("invalid offsets of node " + id);
+			for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+				if (targets[e] < 1 || targets[e] > numNodes || (e > offsets[id] && targets[e] <= targets[e - 1]))
+					throw new IllegalArgumentException("invalid edge of node " + id + ": " + targets[e]);
+				if (transports[e] == 0 || (transports[e] & ~ALL) != 0)
+					throw new IllegalArgumentException("invalid transportation: " + transports[e]);
+			}
+		}
+		return new Board(numNodes, offsets, targets, transports);
+	}
+
+	// helper method to count the links of each type, each one once
+	private int countWays() {
+		int retVal = 0;
+		for (int id = 1; id <= numNodes; id++) {
+			for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+				if (targets[e] >= id)
+					retVal += Integer.bitCount(transports[e]);
+			}
+		}
+		return retVal;
+	}
+
+	// helper method to validate a link
+	private void checkLink(int a, int b, byte type) {
+		if (a < 1 || a > numNodes || b < 1 || b > numNodes)
+			throw new IllegalArgumentException("node id out of range: " + a + " " + b);
+		if (type == 0 || (type & ~ALL) != 0)
+			throw new IllegalArgumentException("invalid transportation: " + type);
+	}
+
+	/**
+	 * Return the bit of the type of transportation with the given name, which
+	 * is one of "TAXI", "BUS", "UNDERGROUND" or "BLACK".
+	 *
+	 * @param way
+	 * @return bit
+	 * @throws IllegalArgumentException
+	 */
+	public static byte transportOf(String way) {
+		switch (way) {
+		case "TAXI":
+			return TAXI;
+		case "BUS":
+			return BUS;
+		case "UNDERGROUND":
+			return UNDERGROUND;
+		case "BLACK":
+			return BLACK;
+		}
+		throw new IllegalArgumentException("unknown way: " + way);
+	}
+
+	/**
+	 * Return the number of nodes. Valid node ids are from 1 to this number.
+	 *
+	 * @return numNodes
+	 */
+	public int getNumOfNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Return the number of directed edges after parallel links are merged.
+	 *
+	 * @return number of edges
+	 */
+	public int getNumOfEdges() {
+		return targets.length;
+	}
+
+	/**
+	 * Return the number of distinct undirected links, counting each type of
+	 * transportation between two nodes as its own link.
+	 *
+	 * @return number of ways
+	 */
+	public int getNumOfAllWays() {
+		return numWays;
+	}
+
+	/**
+	 * Return the index of the first edge going out of the given node.
+	 *
+	 * @param id
+	 * @return index of the first edge
+	 */
+	public int edgeStart(int id) {
+		return offsets[id];
+	}
+
+	/**
+	 * Return the index just after the last edge going out of the given node.
+	 *
+	 * @param id
+	 * @return index after the last edge
+	 */
+	public int edgeEnd(int id) {
+		return offsets[id + 1];
+	}
+
+	/**
+	 * Return the number of neighbors of the given node.
+	 *
+	 * @param id
+	 * @return degree
+	 */
+	public int degree(int id) {
+		return offsets[id + 1] - offsets[id];
+	}
+
+	/**
+	 * Return the node that the given edge goes to.
+	 *
+	 * @param edge
+	 * @return id of the target node
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * Return the bitmask of the types of transportation of the given edge.
+	 *
+	 * @param edge
+	 * @return transport bits
+	 */
+	public byte transport(int edge) {
+		return transports[edge];
+	}
+
+	/**
+	 * Return the index of the edge from a to b, or -1 if there is no such edge.
+	 *
+	 * @param a
+	 * @param b
+	 * @return index of the edge
+	 */
+	public int findEdge(int a, int b) {
+		int e = Arrays.binarySearch(targets, offsets[a], offsets[a + 1], b);
+		return e >= 0 ? e : -1;
+	}
+
+	/**
+	 * Return true if there is an edge from a to b, and false otherwise.
+	 *
+	 * @param a
+	 * @param b
+	 * @return boolean
+	 */
+	public boolean hasEdge(int a, int b) {
+		return findEdge(a, b) >= 0;
+	}
+
+	/**
+	 * Return the bitmask of the types of transportation from a to b, or 0 if
+	 * they are not connected.
+	 *
+	 * @param a
+	 * @param b
+	 * @return transport bits
+	 */
+	public byte transportsBetween(int a, int b) {
+		int e = findEdge(a, b);
+		return e >= 0 ? transports[e] : 0;
+	}
+
+}
@@ -0,0 +1,389 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class to load and save a {@link Board} together with the (x, y) coordinates
+ * of its nodes on the screen
+ *
+ * Boards are read from the text files of the game (files/scotmap.txt and
+ * files/scotpos.txt, see {@link #readMap(InputStream)} and
+ * {@link #readPositions(InputStream, int)}) by a parser that reads bytes
+ * straight from the stream, without Scanner or Strings.
+ *
+ * They can also be saved in a binary file with the same arrays as the board,
+ * which is loaded by mapping the file into memory and copying the arrays out
+ * in bulk. All numbers are little-endian ints, except the transport bits:
+ *
+ * <pre>
+ * header:      MAGIC, VERSION, number of nodes N, number of edges E,
+ *              1 if there are coordinates and 0 otherwise, 3 ints of 0
+ * offsets:     N + 2 ints (see {@link Board#edgeStart(int)})
+ * targets:     E ints
+ * coordinates: x and y of nodes 0 to N, 2 * (N + 1) ints, if there are any
+ * transports:  E bytes
+ * </pre>
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class BoardFile {
+
+	// "SYBD" as a little-endian int
+	public static final int MAGIC = 0x44425953;
+	public static final int VERSION = 1;
+	private static final int HEADER_INTS = 8;
+
+	private final Board board;
+	// coordinates by node id, or null
+	private final int[] x;
+	private final int[] y;
+
+	/**
+	 * Create a board file of the given board and coordinates.
+	 *
+	 * @param board
+	 * @param x
+	 *            x coordinate of each node by id, or null if the nodes have
+	 *            no coordinates
+	 * @param y
+	 *            y coordinate of each node by id, or null
+	 */
+	public BoardFile(Board board, int[] x, int[] y) {
+		if ((x == null) != (y == null) || (x != null && (x.length <= board.getNumOfNodes() || y.length <= board
+				.getNumOfNodes())))
+			throw new IllegalArgumentException("need a coordinate for every node");
+		this.board = board;
+		this.x = x;
+		this.y = y;
+	}
+
+	// getter
+	public Board getBoard() {
+		return board;
+	}
+
+	public boolean hasCoordinates() {
+		return x != null;
+	}
+
+	public int getX(int id) {
+		return x[id];
+	}
+
+	public int getY(int id) {
+		return y[id];
+	}
+
+	/**
+	 * Read a board from the text files of the game.
+	 *
+	 * @param mapFile
+	 *            links, like files/scotmap.txt
+	 * @param positionFile
+	 *            coordinates, like files/scotpos.txt, or null if there are
+	 *            none
+	 * @return board file
+	 * @throws IOException
+	 */
+	public static BoardFile readText(String mapFile, String positionFile) throws IOException {
+		Board board;
+		try (InputStream in = new FileInputStream(mapFile)) {
+			board = readMap(in);
+		}
+		if (positionFile == null)
+			return new BoardFile(board, null, null);
+		int[][] points;
+		try (InputStream in = new FileInputStream(positionFile)) {
+			points = readPositions(in, board.getNumOfNodes());
+		}
+		return new BoardFile(board, points[0], points[1]);
+	}
+
+	/**
+	 * Read the links of a board in the format of files/scotmap.txt: the
+	 * number of nodes and the number of links, then each link as its two
+	 * nodes and one of T, B, U or S for taxi, bus, underground or ship.
+	 *
+	 * @param in
+	 * @return board
+	 * @throws IOException
+	 *             if the format is wrong or the number of links, without the
+	 *             ones written twice, does not match
+	 */
+	public static Board readMap(InputStream in) throws IOException {
+		Tokens tokens = new Tokens(in);
+		int numNode = tokens.nextInt();
+		int numEdge = tokens.nextInt();
+		if (numNode < 0 || numEdge < 0)
+			throw new IOException("invalid header: " + numNode + " " + numEdge);
+		int[] from = new int[numEdge];
+		int[] to = new int[numEdge];
+		byte[] type = new byte[numEdge];
+
+		int count = 0;
+		while (tokens.hasNext()) {
+			if (count == numEdge)
+				throw new IOException("num of edges does not match: more than " + numEdge);
+			from[count] = tokens.nextInt();
+			to[count] = tokens.nextInt();
+			int c = tokens.nextChar();
+			switch (c) {
+			case 'T':
+				type[count] = Board.TAXI;
+				break;
+			case 'B':
+				type[count] = Board.BUS;
+				break;
+			case 'U':
+				type[count] = Board.UNDERGROUND;
+				break;
+			case 'S':
+				type[count] = Board.BLACK;
+				break;
+			default:
+				throw new IOException("unknown way: " + (char) c + " at link " + (count + 1));
+			}
+			count++;
+		}
+		if (!(count == numEdge))
+			throw new IOException("num of edges does not match: " + count);
+		Board board;
+		try {
+			board = new Board(numNode, from, to, type, count);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		// a link written twice is merged by the board, so it does not count
+		// twice
+		if (!(board.getNumOfAllWays() == numEdge))
+			throw new IOException("num of edges does not match: " + board.getNumOfAllWays());
+		return board;
+	}
+
+	/**
+	 * Read the coordinates of the nodes in the format of files/scotpos.txt:
+	 * the number of nodes, then each node as its id and x and y.
+	 *
+	 * @param in
+	 * @param numNodes
+	 *            largest id
+	 * @return x and y by node id
+	 * @throws IOException
+	 *             if the format is wrong or the number of nodes does not
+	 *             match
+	 */
+	public static int[][] readPositions(InputStream in, int numNodes) throws IOException {
+		Tokens tokens = new Tokens(in);
+		int numNode = tokens.nextInt();
+		int[] x = new int[numNodes + 1];
+		int[] y = new int[numNodes + 1];
+		int count = 0;
+		while (tokens.hasNext()) {
+			int id = tokens.nextInt();
+			if (id < 1 || id > numNodes)
+				throw new IOException("node id out of range: " + id);
+			x[id] = tokens.nextInt();
+			y[id] = tokens.nextInt();
+			count++;
+		}
+		if (!(count == numNode && count == numNodes))
+			throw new IOException("num of the nodes does not match: " + count);
+		return new int[][] { x, y };
+	}
+
+	/**
+	 * Load a board saved by {@link #write(Path)}.
+	 *
+	 * @param file
+	 * @return board file
+	 * @throws IOException
+	 *             if the file is not a valid board
+	 */
+	public static BoardFile read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.remaining() < HEADER_INTS * 4 || buffer.getInt() != MAGIC)
+				throw new IOException("not a board file: " + file);
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("unknown version: " + version);
+			int numNodes = buffer.getInt();
+			int numEdges = buffer.getInt();
+			boolean coordinates = buffer.getInt() != 0;
+			buffer.position(HEADER_INTS * 4);
+			long size = HEADER_INTS * 4L + 4L * (numNodes + 2) + 5L * numEdges
+					+ (coordinates ? 8L * (numNodes + 1) : 0);
+			if (numNodes < 0 || numEdges < 0 || size != buffer.limit())
+				throw new IOException("size of the file does not match: " + file);
+
+			int[] offsets = new int[numNodes + 2];
+			int[] targets = new int[numEdges];
+			buffer.asIntBuffer().get(offsets);
+			buffer.position(buffer.position() + offsets.length * 4);
+			buffer.asIntBuffer().get(targets);
+			buffer.position(buffer.position() + targets.length * 4);
+			int[] x = null;
+			int[] y = null;
+			if (coordinates) {
+				x = new int[numNodes + 1];
+				y = new int[numNodes + 1];
+				buffer.asIntBuffer().get(x);
+				buffer.position(buffer.position() + x.length * 4);
+				buffer.asIntBuffer().get(y);
+				buffer.position(buffer.position() + y.length * 4);
+			}
+			byte[] transports = new byte[numEdges];
+			buffer.get(transports);
+			try {
+				return new BoardFile(Board.fromCsr(numNodes, offsets, targets, transports), x, y);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Save the board and the coordinates in the binary format.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(Path file) throws IOException {
+		int numNodes = board.getNumOfNodes();
+		int numEdges = board.getNumOfEdges();
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+			DataOutputStream data = new DataOutputStream(out);
+			int[] header = { MAGIC, VERSION, numNodes, numEdges, x == null ? 0 : 1, 0, 0, 0 };
+			for (int v : header) {
+				writeInt(data, v);
+			}
+			for (int id = 0; id <= numNodes + 1; id++) {
+				writeInt(data, id <= numNodes ? board.edgeStart(id) : numEdges);
+			}
+			for (int e = 0; e < numEdges; e++) {
+				writeInt(data, board.target(e));
+			}
+			if (x != null) {
+				for (int id = 0; id <= numNodes; id++) {
+					writeInt(data, x[id]);
+				}
+				for (int id = 0; id <= numNodes; id++) {
+					writeInt(data, y[id]);
+				}
+			}
+			for (int e = 0; e < numEdges; e++) {
+				data.writeByte(board.transport(e));
+			}
+			data.flush();
+		}
+	}
+
+	// helper method to write a little-endian int
+	private static void writeInt(DataOutputStream data, int v) throws IOException {
+		data.writeInt(Integer.reverseBytes(v));
+	}
+
+	/**
+	 * Class to read numbers and letters separated by white space from a
+	 * stream, one buffer of bytes at a time
+	 *
+	 * @author Shogo Akiyama
+	 *
+	 */
+	private static class Tokens {
+		private final InputStream in;
+		private final byte[] buffer = new byte[1 << 16];
+		private int position;
+		private int limit;
+
+		Tokens(InputStream in) {
+			this.in = in;
+		}
+
+		// return true if there is another token
+		boolean hasNext() throws IOException {
+			return skipSpace() >= 0;
+		}
+
+		// read a non-negative or negative int
+		int nextInt() throws IOException {
+			int c = skipSpace();
+			if (c < 0)
+				throw new IOException("unexpected end of file");
+			position++;
+			boolean negative = c == '-';
+			if (negative)
+				c = read();
+			if (c < '0' || c > '9')
+				throw new IOException("not a number: " + (char) c);
+			long retVal = 0;
+			while (c >= '0' && c <= '9') {
+				retVal = retVal * 10 + (c - '0');
+				if (retVal > Integer.MAX_VALUE + 1L)
+					throw new IOException("number too large");
+				c = read();
+			}
+			if (c > ' ')
+				throw new IOException("not a number: " + (char) c);
+			retVal = negative ? -retVal : retVal;
+			if (retVal > Integer.MAX_VALUE)
+				throw new IOException("number too large");
+			return (int) retVal;
+		}
+
+		// read a token of one letter
+		int nextChar() throws IOException {
+			int c = skipSpace();
+			if (c < 0)
+				throw new IOException("unexpected end of file");
+			position++;
+			int next = read();
+			if (next > ' ')
+				throw new IOException("not a single letter: " + (char) c + (char) next);
+			return c;
+		}
+
+		// helper method to skip white space, and return the next byte without
+		// reading it, or -1 at the end
+		private int skipSpace() throws IOException {
+			while (true) {
+				if (position == limit && !fill())
+					return -1;
+				int c = buffer[position] & 0xFF;
+				if (c > ' ')
+					return c;
+				position++;
+			}
+		}
+
+		private int read() throws IOException {
+			if (position == limit && !fill())
+				return -1;
+			return buffer[position++] & 0xFF;
+		}
+
+		private boolean fill() throws IOException {
+			limit = in.read(buffer);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return false;
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Class to run breadth-first and depth-first searches on a {@link Board}
+ *
+ * This is the int version of the searches of {@link Graph}: nodes are ids, the
+ * neighbors of a node are visited by increasing id instead of alphabetically,
+ * and only the edges of the given types of transportation are followed. The
+ * queue, the stack and the visited bitmap are kept between searches, so one
+ * instance searches again and again without allocating. An instance must not
+ * be used by two threads at the same time.
+ *
+ * Both searches take time linear in the number of nodes and edges, and stop
+ * early as soon as the visitor returns true.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class BoardSearch {
+
+	private final Board board;
+	private final int[] queue;
+	private final int[] edge;
+	private final long[] visited;
+
+	public BoardSearch(Board board) {
+		this.board = board;
+		queue = new int[board.getNumOfNodes()];
+		edge = new int[board.getNumOfNodes() + 1];
+		visited = new long[(board.getNumOfNodes() >>> 6) + 1];
+	}
+
+	/**
+	 * Perform a breadth-first search from all of the given nodes at once.
+	 *
+	 * @param sources
+	 * @param numSources
+	 *            number of entries of sources to use
+	 * @param transports
+	 *            bitmask of {@link Board} transport bits to follow
+	 * @param visitor
+	 *            null, or called with each node the first time it is reached,
+	 *            and returns true to stop the search
+	 * @param dist
+	 *            null, or array of at least {@link Board#getNumOfNodes()} + 1
+	 *            ints to fill with the number of edges from the nearest source,
+	 *            or -1 if not reached
+	 * @param parent
+	 *            null, or array to fill with the node each node was reached
+	 *            from, or 0 for sources and nodes not reached
+	 * @return number of visited nodes
+	 */
+	public int breadthFirstSearch(int[] sources, int numSources, int transports, IntPredicate visitor, int[] dist,
+			int[] parent) {
+		Arrays.fill(visited, 0);
+		if (dist != null)
+			Arrays.fill(dist, 0, board.getNumOfNodes() + 1, -1);
+		if (parent != null)
+			Arrays.fill(parent, 0, board.getNumOfNodes() + 1, 0);
+
+		int tail = 0;
+		for (int i = 0; i < numSources; i++) {
+			if (mark(sources[i])) {
+				queue[tail++] = sources[i];
+				if (dist != null)
+					dist[sources[i]] = 0;
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int current = queue[head];
+			if (visitor != null && visitor.test(current))
+				return head + 1;
+			for (int e = board.edgeStart(current); e < board.edgeEnd(current); e++) {
+				if ((board.transport(e) & transports) == 0)
+					continue;
+				int next = board.target(e);
+				if (!mark(next))
+					continue;
+				queue[tail++] = next;
+				if (dist != null)
+					dist[next] = dist[current] + 1;
+				if (parent != null)
+					parent[next] = current;
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Perform a depth-first search from the given node, with an explicit
+	 * stack instead of recursion.
+	 *
+	 * @param source
+	 * @param transports
+	 *            bitmask of {@link Board} transport bits to follow
+	 * @param visitor
+	 *            null, or called with each node the first time it is reached,
+	 *            and returns true to stop the search
+	 * @param parent
+	 *            null, or array of at least {@link Board#getNumOfNodes()} + 1
+	 *            ints to fill with the node each node was reached from, or 0
+	 *            for the source and nodes not reached
+	 * @return number of visited nodes
+	 */
+	public int depthFirstSearch(int source, int transports, IntPredicate visitor, int[] parent) {
+		Arrays.fill(visited, 0);
+		if (parent != null)
+			Arrays.fill(parent, 0, board.getNumOfNodes() + 1, 0);
+
+		// the queue is used as the stack of the path from the source, and
+		// edge holds the next edge to look at of each node on it
+		mark(source);
+		int count = 1;
+		if (visitor != null && visitor.test(source))
+			return count;
+		int top = 0;
+		queue[top++] = source;
+		edge[source] = board.edgeStart(source);
+		while (top > 0) {
+			int current = queue[top - 1];
+			if (edge[current] == board.edgeEnd(current)) {
+				top--;
+				continue;
+			}
+			int e = edge[current]++;
+			if ((board.transport(e) & transports) == 0)
+				continue;
+			int next = board.target(e);
+			if (!mark(next))
+				continue;
+			if (parent != null)
+				parent[next] = current;
+			count++;
+			if (visitor != null && visitor.test(next))
+				return count;
+			queue[top++] = next;
+			edge[next] = board.edgeStart(next);
+		}
+		return count;
+	}
+
+	// helper method to set the bit of a node, returns false if it was set
+	private boolean mark(int id) {
+		long bit = 1L << id;
+		if ((visited[id >>> 6] & bit) != 0)
+			return false;
+		visited[id >>> 6] |= bit;
+		return true;
+	}
+
+	// getter
+	public Board getBoard() {
+		return board;
+	}
+
+}
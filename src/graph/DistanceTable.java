@@ -0,0 +1,139 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed table of the number of moves between every pair of nodes of a
+ * {@link Board}, for every combination of the types of transportation.
+ *
+ * The table is built once by running a breadth-first search from every node
+ * for each of the 15 non-empty combinations of {@link Board#TAXI},
+ * {@link Board#BUS}, {@link Board#UNDERGROUND} and {@link Board#BLACK}, in
+ * parallel. All of the distances are kept in one flat byte array, so a lookup
+ * is a single array access.
+ *
+ * The table needs 15 * (N + 1)^2 bytes, which is about 600KB for the 199 nodes
+ * of Scotland Yard. It is meant for boards of up to a few thousand nodes.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public final class DistanceTable {
+
+	// returned when there is no way between two nodes
+	public static final int UNREACHABLE = 255;
+
+	private static final int NUM_MASKS = Board.ALL;
+	// largest array a JVM can allocate, about 11900 nodes
+	private static final long MAX_TABLE_SIZE = Integer.MAX_VALUE - 8;
+
+	private final int numNodes;
+	// row length of one table, node ids are used as they are
+	private final int stride;
+	// distance from a to b using mask m is at ((m - 1) * stride + a) * stride + b
+	private final byte[] table;
+
+	/**
+	 * Build the table for the given board.
+	 *
+	 * @param board
+	 * @throws IllegalArgumentException
+	 *             if the board or a distance does not fit in the table
+	 */
+	public DistanceTable(Board board) {
+		numNodes = board.getNumOfNodes();
+		stride = numNodes + 1;
+		long size = (long) NUM_MASKS * stride * stride;
+		if (size > MAX_TABLE_SIZE)
+			throw new IllegalArgumentException(
+					"board of " + numNodes + " nodes is too large for the distance table: " + size + " bytes");
+		table = new byte[(int) size];
+		Arrays.fill(table, (byte) UNREACHABLE);
+
+		IntStream.rangeClosed(1, numNodes).parallel().forEach(source -> {
+			int[] queue = new int[numNodes];
+			for (int mask = 1; mask <= NUM_MASKS; mask++) {
+				search(board, source, mask, queue);
+			}
+		});
+	}
+
+	// helper method to fill one row of the table by breadth-first search
+	private void search(Board board, int source, int mask, int[] queue) {
+		int row = ((mask - 1) * stride + source) * stride;
+		int head = 0;
+		int tail = 0;
+		table[row + source] = 0;
+		queue[tail++] = source;
+		while (head < tail) {
+			int n = queue[head++];
+			int next = (table[row + n] & 0xFF) + 1;
+			for (int e = board.edgeStart(n); e < board.edgeEnd(n); e++) {
+				int t = board.target(e);
+				if ((board.transport(e) & mask) == 0 || table[row + t] != (byte) UNREACHABLE)
+					continue;
+				// 255 is kept for UNREACHABLE
+				if (next >= UNREACHABLE)
+					throw new IllegalArgumentException("distance is too long for the table: " + next);
+				table[row + t] = (byte) next;
+				queue[tail++] = t;
+			}
+		}
+	}
+
+	/**
+	 * Return the number of moves from a to b when every move uses one of the
+	 * given types of transportation, or {@link #UNREACHABLE}.
+	 *
+	 * @param from
+	 * @param to
+	 * @param transports
+	 *            bitmask of {@link Board} transport bits, must not be 0
+	 * @return distance
+	 */
+	public int distance(int from, int to, int transports) {
+		return table[(((transports & NUM_MASKS) - 1) * stride + from) * stride + to] & 0xFF;
+	}
+
+	/**
+	 * Return the number of moves from a to b using any type of transportation,
+	 * or {@link #UNREACHABLE}.
+	 *
+	 * @param from
+	 * @param to
+	 * @return distance
+	 */
+	public int distance(int from, int to) {
+		return distance(from, to, Board.ALL);
+	}
+
+	/**
+	 * Return the smallest distance from any of the given nodes to the target,
+	 * or {@link #UNREACHABLE} if the array is empty.
+	 *
+	 * @param from
+	 * @param count
+	 *            number of entries of from to use
+	 * @param to
+	 * @param transports
+	 * @return distance
+	 */
+	public int nearest(int[] from, int count, int to, int transports) {
+		int best = UNREACHABLE;
+		for (int i = 0; i < count; i++) {
+			best = Math.min(best, distance(from[i], to, transports));
+		}
+		return best;
+	}
+
+	/**
+	 * Return the number of nodes of the board this table was built for.
+	 *
+	 * @return numNodes
+	 */
+	public int getNumOfNodes() {
+		return numNodes;
+	}
+
+}
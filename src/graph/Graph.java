@@ -7,15 +7,23 @@ import java.util.*;
  * A basic representation of a graph that can perform BFS, DFS, Dijkstra, and
  * Prim-Jarnik's algorithm for a minimum spanning tree.
  * 
+ * Dijkstra, A* and Prim-Jarnik's algorithm with a cost for each type of
+ * transportation are done by {@link PathFinder} on the {@link Board} of the
+ * same map.
+ * 
  * @author Shogog Akiyama
  *
  */
 public class Graph {
 	public final File DIR = new File("tests");
 	private Map<String, Node> map;
+	// nodes in the order they were created, so that a node is found by its
+	// index
+	private List<Node> nodeList;
 
 	public Graph() {
 		map = new TreeMap<String, Node>();
+		nodeList = new ArrayList<Node>();
 	}
 
 	/**
@@ -29,10 +37,41 @@ public class Graph {
 	 * @return
 	 */
 	public Node getOrCreateNode(String name) {
-		if (map.containsKey(name))
-			return map.get(name);
-		map.put(name, new Node(name));
-		return map.get(name);
+		Node retVal = map.get(name);
+		if (retVal == null) {
+			retVal = new Node(name);
+			retVal.index = nodeList.size();
+			nodeList.add(retVal);
+			map.put(name, retVal);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Return the index of the node with the given name. Nodes are numbered
+	 * from 0 to {@link #getNumOfAllNodes()} - 1 in the order they were
+	 * created, and the arrays filled by the searches use these numbers.
+	 * 
+	 * @param name
+	 * @return index
+	 * @throws NoSuchElementException
+	 *             if there is no node with the given name
+	 */
+	public int indexOf(String name) {
+		Node n = map.get(name);
+		if (n == null)
+			throw new NoSuchElementException(name);
+		return n.index;
+	}
+
+	/**
+	 * Return the node with the given index (see {@link #indexOf(String)}).
+	 * 
+	 * @param index
+	 * @return node
+	 */
+	public Node getNode(int index) {
+		return nodeList.get(index);
 	}
 
 	/**
@@ -61,18 +100,28 @@ public class Graph {
 		return retVal;
 	}
 
+	/**
+	 * Return the number of links, counting each type of transportation of an
+	 * edge as its own link, and an undirected edge once.
+	 * 
+	 * @return number of ways
+	 */
 	public int getNumOfAllWays() {
 		int sum = 0;
-		Set<String> counted = new TreeSet<String>();
 		for (Node n : map.values()) {
-			TreeSet<Node> neighbors = (TreeSet<Node>) n.getNeighbors();
-			for (Node next : neighbors) {
-				for (String way : n.getWay(next)) {
-					if (counted.contains(n.getName() + " " + next.getName() + " " + way))
-						continue;
-					sum++;
-					if (next.hasEdge(n))
-						counted.add(next.getName() + " " + n.getName() + " " + way);
+			for (int i = 0; i < n.getNumOfNeighbors(); i++) {
+				Node next = n.getNeighbor(i);
+				List<String> ways = n.getWay(i);
+				// the ways back from a node that was already counted are the
+				// same links
+				if (next.compareTo(n) < 0 && next.hasEdge(n)) {
+					List<String> back = next.getWay(n);
+					for (String way : ways) {
+						if (!back.contains(way))
+							sum++;
+					}
+				} else {
+					sum += ways.size();
 				}
 			}
 		}
@@ -80,12 +129,7 @@ public class Graph {
 	}
 
 	public int getNumOfAllNodes() {
-		int count = 0;
-		for (Iterator<String> iterator = map.keySet().iterator(); iterator.hasNext();) {
-			iterator.next();
-			count++;
-		}
-		return count;
+		return map.size();
 	}
 
 	/**
@@ -100,55 +144,70 @@ public class Graph {
 	 * @param v
 	 */
 	public void breadthFirstSearch(String startNodeName, NodeVisitor v) {
-		// special case
-		if (!map.containsKey(startNodeName))
-			throw new NoSuchElementException();
+		breadthFirstSearch(Collections.singletonList(startNodeName), v, null, null);
+	}
 
-		// implementation 1
-		// Queue<Node> q = new ArrayDeque<Node>();
-		// Set<Node> visited = new TreeSet<Node>();
-		// q.offer(map.get(startNodeName));
-		// while (!q.isEmpty()) {
-		// Node n = q.poll();
-		// v.visit(n);
-		// visited.add(n);
-		// for (Node neighbor : n.getNeighbors()) {
-		// if (visited.contains(neighbor))
-		// continue;
-		// else if (q.contains(neighbor))
-		// continue;
-		// else
-		// q.offer(neighbor);
-		// }
-		// }
-
-		// implementation 3 (use class pseudo code)
-		// Queue<Node> q = new ArrayDeque<Node>();
-		// Set<Node> visited = new TreeSet<Node>();
-		// q.offer(map.get(startNodeName));
-		// visited.add(map.get(startNodeName));
-		// while (!q.isEmpty()) {
-		// Node n = q.poll();
-		// v.visit(n);
-		// for (Node neighbor : n.getNeighbors()) {
-		// if (!visited.contains(neighbor))
-		// q.offer(neighbor);
-		// visited.add(neighbor);
-		// }
-		// }
-
-		// implementation 2
-		List<Node> list = new ArrayList<Node>();
-		list.add(map.get(startNodeName));
-		for (int i = 0; i < list.size(); i++) {
-			Node n = list.get(i);
+	/**
+	 * Perform a breadth-first search on the graph, starting at all of the
+	 * nodes with the given names at once, in the same order as
+	 * {@link #breadthFirstSearch(String, NodeVisitor)}. The search stops
+	 * early as soon as {@link NodeVisitor#isDone()} returns true.
+	 * 
+	 * Each node is looked at once and each edge once from each end, so the
+	 * search takes time linear in the size of the graph.
+	 * 
+	 * @param startNodeNames
+	 * @param v
+	 * @param dist
+	 *            null, or array of at least {@link #getNumOfAllNodes()} ints
+	 *            (by {@link #indexOf(String)}) to fill with the number of
+	 *            edges from the nearest start node, or -1 if not reached
+	 * @param parent
+	 *            null, or array to fill with the index of the node each node
+	 *            was reached from, or -1 for start nodes and nodes not reached
+	 * @return number of visited nodes
+	 * @throws NoSuchElementException
+	 *             if there is no node with one of the names
+	 */
+	public int breadthFirstSearch(Collection<String> startNodeNames, NodeVisitor v, int[] dist, int[] parent) {
+		int size = nodeList.size();
+		int[] queue = new int[size];
+		long[] visited = new long[(size >>> 6) + 1];
+		if (dist != null)
+			Arrays.fill(dist, 0, size, -1);
+		if (parent != null)
+			Arrays.fill(parent, 0, size, -1);
+
+		int tail = 0;
+		for (String name : startNodeNames) {
+			Node n = map.get(name);
+			// special case
+			if (n == null)
+				throw new NoSuchElementException();
+			if (mark(visited, n.index)) {
+				queue[tail++] = n.index;
+				if (dist != null)
+					dist[n.index] = 0;
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int current = queue[head];
+			Node n = nodeList.get(current);
 			v.visit(n);
-			for (Node neighbor : n.getNeighbors()) {
-				if (list.contains(neighbor))
+			if (v.isDone())
+				return head + 1;
+			for (int j = 0; j < n.getNumOfNeighbors(); j++) {
+				int next = indexOf(n.getNeighbor(j));
+				if (!mark(visited, next))
 					continue;
-				list.add(neighbor);
+				queue[tail++] = next;
+				if (dist != null)
+					dist[next] = dist[current] + 1;
+				if (parent != null)
+					parent[next] = current;
 			}
 		}
+		return tail;
 	}
 
 	/**
@@ -163,63 +222,87 @@ public class Graph {
 	 * @param v
 	 */
 	public void depthFirstSearch(String startNodeName, NodeVisitor v) {
+		depthFirstSearch(startNodeName, v, null);
+	}
+
+	/**
+	 * Perform a depth-first search on the graph in the same order as
+	 * {@link #depthFirstSearch(String, NodeVisitor)}, with an explicit stack
+	 * instead of recursion so that long paths cannot overflow the stack of
+	 * the thread. The search stops early as soon as
+	 * {@link NodeVisitor#isDone()} returns true, and takes time linear in the
+	 * size of the graph.
+	 * 
+	 * @param startNodeName
+	 * @param v
+	 * @param parent
+	 *            null, or array of at least {@link #getNumOfAllNodes()} ints
+	 *            (by {@link #indexOf(String)}) to fill with the index of the
+	 *            node each node was reached from, or -1 for the start node
+	 *            and nodes not reached
+	 * @return number of visited nodes
+	 * @throws NoSuchElementException
+	 *             if there is no node with the given name
+	 */
+	public int depthFirstSearch(String startNodeName, NodeVisitor v, int[] parent) {
+		Node start = map.get(startNodeName);
 		// special case
-		if (!map.containsKey(startNodeName))
+		if (start == null)
 			throw new NoSuchElementException();
+		int size = nodeList.size();
+		long[] visited = new long[(size >>> 6) + 1];
+		if (parent != null)
+			Arrays.fill(parent, 0, size, -1);
+		// nodes on the path from the start, and the position of the next
+		// neighbor to look at of each of them, counting down
+		int[] stack = new int[size];
+		int[] nextNeighbor = new int[size];
 
-		// recursive implementation
-		Set<Node> visited = new TreeSet<Node>();
-		depthSearchHelper(map.get(startNodeName), v, visited);
-
-		// implementation 3 (use class pseudo code)
-		// Stack<Node> st = new Stack<Node>();
-		// Set<Node> visited = new TreeSet<Node>();
-		// st.push(map.get(startNodeName));
-		// while (!st.isEmpty()) {
-		// Node n = st.pop();
-		// v.visit(n);
-		// visited.add(n);
-		// for (Node neighbor : n.getNeighbors()) {
-		// if (!visited.contains(neighbor))
-		// st.push(neighbor);
-		// }
-		// }
-
-		// implementation 2 does not pass test 2
-		// List<Node> list=new ArrayList<Node>();
-		// list.add(map.get(startNodeName));
-		// for (int i = 0; i < list.size(); i++) {
-		// v.visit(list.get(i));
-		// List<Node> reverseList = new ArrayList<Node>();
-		// for (Node n : list.get(i).getNeighbors()) {
-		// System.out.println("add " + n.getName());
-		// reverseList.add(n);
-		// }
-		// for (int j = reverseList.size() - 1; j >= 0; j--) {
-		// if (list.contains(reverseList.get(j))) {
-		// continue;
-		// } else {
-		// list.add(reverseList.get(j));
-		// break;
-		// }
-		// }
-		// }
-	}
-
-	// recursive method
-	private void depthSearchHelper(Node node, NodeVisitor v, Set<Node> visited) {
-		v.visit(node);
-		visited.add(node);
-		List<Node> list = new ArrayList<Node>();
-		for (Node n : node.getNeighbors()) {
-			list.add(n);
-		}
-		for (int i = list.size() - 1; i >= 0; i--) {
-			Node n = list.get(i);
-			if (visited.contains(n))
+		mark(visited, start.index);
+		v.visit(start);
+		int count = 1;
+		if (v.isDone())
+			return count;
+		int top = 0;
+		stack[top++] = start.index;
+		nextNeighbor[start.index] = start.getNumOfNeighbors() - 1;
+		while (top > 0) {
+			int current = stack[top - 1];
+			if (nextNeighbor[current] < 0) {
+				top--;
 				continue;
-			depthSearchHelper(n, v, visited);
+			}
+			Node n = nodeList.get(current).getNeighbor(nextNeighbor[current]--);
+			int next = indexOf(n);
+			if (!mark(visited, next))
+				continue;
+			if (parent != null)
+				parent[next] = current;
+			v.visit(n);
+			count++;
+			if (v.isDone())
+				return count;
+			stack[top++] = next;
+			nextNeighbor[next] = n.getNumOfNeighbors() - 1;
 		}
+		return count;
+	}
+
+	// helper method to find the index of a neighbor, which has to be a node
+	// of this graph
+	private int indexOf(Node n) {
+		if (n.index < 0 || n.index >= nodeList.size() || nodeList.get(n.index) != n)
+			throw new IllegalStateException("node is not in this graph: " + n);
+		return n.index;
+	}
+
+	// helper method to set the bit of a node, returns false if it was set
+	private static boolean mark(long[] visited, int index) {
+		long bit = 1L << index;
+		if ((visited[index >>> 6] & bit) != 0)
+			return false;
+		visited[index >>> 6] |= bit;
+		return true;
 	}
 
 }
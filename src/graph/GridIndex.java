@@ -0,0 +1,185 @@
+package graph;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Class to find the node at a point of the screen, using a uniform grid over
+ * the coordinates of the nodes
+ *
+ * The area of the nodes is cut into square cells, and the ids of the nodes
+ * of each cell are kept together in one array, in the same way as the edges
+ * of a {@link Board}. A query within a radius, or a square of half size, no
+ * larger than half the size of a cell looks at no more than four cells, so
+ * its time does not depend on the number of nodes as long as they are spread
+ * over the area.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class GridIndex {
+
+	private final int[] x;
+	private final int[] y;
+	private final int cellSize;
+	private final int minX;
+	private final int minY;
+	private final int columns;
+	private final int rows;
+	// ids of the nodes of cell c are cellIds[cellStart[c]] to
+	// cellIds[cellStart[c + 1] - 1], cells in rows from the top left
+	private final int[] cellStart;
+	private final int[] cellIds;
+
+	/**
+	 * Create an index of the nodes 1 to numNodes.
+	 *
+	 * @param numNodes
+	 * @param x
+	 *            x coordinate of each node by id
+	 * @param y
+	 *            y coordinate of each node by id
+	 * @param cellSize
+	 *            size of a cell in pixels, best about twice the radius of
+	 *            the queries
+	 */
+	public GridIndex(int numNodes, int[] x, int[] y, int cellSize) {
+		if (cellSize < 1)
+			throw new IllegalArgumentException("size of a cell must be positive: " + cellSize);
+		if (x.length <= numNodes || y.length <= numNodes)
+			throw new IllegalArgumentException("need a coordinate for every node");
+		this.x = x;
+		this.y = y;
+		this.cellSize = cellSize;
+		int left = Integer.MAX_VALUE;
+		int top = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE;
+		int bottom = Integer.MIN_VALUE;
+		for (int id = 1; id <= numNodes; id++) {
+			left = Math.min(left, x[id]);
+			top = Math.min(top, y[id]);
+			right = Math.max(right, x[id]);
+			bottom = Math.max(bottom, y[id]);
+		}
+		if (numNodes == 0) {
+			left = top = right = bottom = 0;
+		}
+		minX = left;
+		minY = top;
+		columns = (int) ((right - (long) left) / cellSize + 1);
+		rows = (int) ((bottom - (long) top) / cellSize + 1);
+		if ((long) columns * rows > Integer.MAX_VALUE - 1)
+			throw new IllegalArgumentException("too many cells: " + columns + " x " + rows);
+
+		// counting sort of the nodes by cell
+		cellStart = new int[columns * rows + 1];
+		for (int id = 1; id <= numNodes; id++) {
+			cellStart[cellOf(x[id], y[id]) + 1]++;
+		}
+		for (int c = 0; c < columns * rows; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		cellIds = new int[numNodes];
+		int[] next = new int[columns * rows];
+		for (int id = 1; id <= numNodes; id++) {
+			int c = cellOf(x[id], y[id]);
+			cellIds[cellStart[c] + next[c]++] = id;
+		}
+	}
+
+	/**
+	 * Return the node nearest to the point within the given radius, or 0 if
+	 * there is none.
+	 *
+	 * @param px
+	 * @param py
+	 * @param radius
+	 * @return id
+	 */
+	public int nearest(int px, int py, int radius) {
+		return nearest(px, py, radius, id -> true);
+	}
+
+	/**
+	 * Return the node nearest to the point within the given radius among the
+	 * nodes the filter accepts, or 0 if there is none.
+	 *
+	 * @param px
+	 * @param py
+	 * @param radius
+	 * @param filter
+	 * @return id
+	 */
+	public int nearest(int px, int py, int radius, IntPredicate filter) {
+		return nearest(px, py, radius, false, filter);
+	}
+
+	/**
+	 * Return the node nearest to the point among the nodes the filter
+	 * accepts whose square of half size halfSize, centered on the node,
+	 * holds the point, or 0 if there is none.
+	 *
+	 * @param px
+	 * @param py
+	 * @param halfSize
+	 * @param filter
+	 * @return id
+	 */
+	public int nearestInSquare(int px, int py, int halfSize, IntPredicate filter) {
+		return nearest(px, py, halfSize, true, filter);
+	}
+
+	// helper method to find the nearest node within the radius, or within
+	// the square of half size radius around the point
+	private int nearest(int px, int py, int radius, boolean square, IntPredicate filter) {
+		int firstColumn = (int) Math.max(0, column(px - (long) radius));
+		int lastColumn = (int) Math.min(columns - 1, column(px + (long) radius));
+		int firstRow = (int) Math.max(0, row(py - (long) radius));
+		int lastRow = (int) Math.min(rows - 1, row(py + (long) radius));
+		int retVal = 0;
+		// a point of the square is at most sqrt(2) radius away
+		long best = square ? 2L * radius * radius : (long) radius * radius;
+		for (int r = firstRow; r <= lastRow; r++) {
+			for (int c = firstColumn; c <= lastColumn; c++) {
+				int cell = r * columns + c;
+				for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+					int id = cellIds[i];
+					long dx = x[id] - (long) px;
+					long dy = y[id] - (long) py;
+					if (square && (Math.abs(dx) > radius || Math.abs(dy) > radius))
+						continue;
+					long d = dx * dx + dy * dy;
+					if (d <= best && (d < best || retVal == 0 || id < retVal) && filter.test(id)) {
+						best = d;
+						retVal = id;
+					}
+				}
+			}
+		}
+		return retVal;
+	}
+
+	// helper method to find the cell of a point of a node
+	private int cellOf(int px, int py) {
+		return (int) (row(py) * columns + column(px));
+	}
+
+	// helper method to find the column of an x coordinate, which can be out
+	// of the grid
+	private long column(long px) {
+		return Math.floorDiv(px - minX, (long) cellSize);
+	}
+
+	private long row(long py) {
+		return Math.floorDiv(py - minY, (long) cellSize);
+	}
+
+	// getter
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	public int getNumOfCells() {
+		return columns * rows;
+	}
+
+}
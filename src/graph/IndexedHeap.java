@@ -0,0 +1,183 @@
+package graph;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Class to represent a priority queue of int ids with double keys, smallest
+ * key first
+ *
+ * The heap is d-ary and indexed: it knows where each id is, so the key of an
+ * id in the heap can be lowered in O(log n) time, and nothing is boxed or
+ * allocated after it is created. Ids go from 0 to the capacity - 1, and each
+ * id is in the heap at most once.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class IndexedHeap {
+
+	public static final int DEFAULT_ARITY = 4;
+
+	private final int arity;
+	private final int[] heap;
+	// position of each id in heap, -1 if it is not in the heap
+	private final int[] position;
+	private final double[] keys;
+	private int size;
+
+	public IndexedHeap(int capacity) {
+		this(capacity, DEFAULT_ARITY);
+	}
+
+	/**
+	 * Create an empty heap for the ids from 0 to capacity - 1.
+	 *
+	 * @param capacity
+	 * @param arity
+	 *            number of children of each entry, at least 2
+	 */
+	public IndexedHeap(int capacity, int arity) {
+		if (arity < 2)
+			throw new IllegalArgumentException("arity must be at least 2: " + arity);
+		this.arity = arity;
+		heap = new int[capacity];
+		position = new int[capacity];
+		keys = new double[capacity];
+		for (int i = 0; i < capacity; i++) {
+			position[i] = -1;
+		}
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int id) {
+		return position[id] >= 0;
+	}
+
+	/**
+	 * Return the key of an id in the heap.
+	 *
+	 * @param id
+	 * @return key
+	 */
+	public double getKey(int id) {
+		if (position[id] < 0)
+			throw new NoSuchElementException("not in the heap: " + id);
+		return keys[id];
+	}
+
+	/**
+	 * Add the id with the given key, or lower its key if it is already in the
+	 * heap with a larger one.
+	 *
+	 * @param id
+	 * @param key
+	 * @return true if the heap was changed, and false otherwise
+	 */
+	public boolean offer(int id, double key) {
+		int i = position[id];
+		if (i < 0) {
+			keys[id] = key;
+			i = size++;
+			heap[i] = id;
+			position[id] = i;
+		} else if (key < keys[id]) {
+			keys[id] = key;
+		} else {
+			return false;
+		}
+		siftUp(i);
+		return true;
+	}
+
+	/**
+	 * Remove the id with the smallest key and return it.
+	 *
+	 * @return id
+	 * @throws NoSuchElementException
+	 *             if the heap is empty
+	 */
+	public int poll() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		int retVal = heap[0];
+		position[retVal] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Return the smallest key without removing its id.
+	 *
+	 * @return key
+	 * @throws NoSuchElementException
+	 *             if the heap is empty
+	 */
+	public double peekKey() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Remove every id, in time linear in the number of ids in the heap.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			position[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	// helper method to move the entry at i up to its place
+	private void siftUp(int i) {
+		int id = heap[i];
+		double key = keys[id];
+		while (i > 0) {
+			int p = (i - 1) / arity;
+			if (keys[heap[p]] <= key)
+				break;
+			heap[i] = heap[p];
+			position[heap[i]] = i;
+			i = p;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+
+	// helper method to move the entry at i down to its place
+	private void siftDown(int i) {
+		int id = heap[i];
+		double key = keys[id];
+		while (true) {
+			int first = i * arity + 1;
+			if (first >= size)
+				break;
+			int best = first;
+			int last = Math.min(first + arity, size);
+			for (int c = first + 1; c < last; c++) {
+				if (keys[heap[c]] < keys[heap[best]])
+					best = c;
+			}
+			if (keys[heap[best]] >= key)
+				break;
+			heap[i] = heap[best];
+			position[heap[i]] = i;
+			i = best;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+
+}
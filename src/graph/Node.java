@@ -3,10 +3,10 @@ package graph;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * Class to represent a single node (or vertex) of a graph.
@@ -31,8 +31,14 @@ public class Node implements Comparable<Node> {
 	private String name;
 	private Map<Node, List<String>> neighbors;
 	// list<String> is the name of the types of transportation
-	private boolean occupied; // occupied is true if a detective is there
-	private boolean hiding; // hiding is true is Mr.X is there
+	// read-only view of the keys of neighbors, sorted by name
+	private Collection<Node> neighborView;
+	// neighbors and their ways in the same sorted order, rebuilt whenever an
+	// edge is added or removed so that they can be walked by index
+	private Node[] neighborArray;
+	private List<List<String>> wayList;
+	// position of the node in its graph (see Graph#indexOf), -1 if none
+	int index = -1;
 
 	/**
 	 * Create a new node with the given name. The newly created node should have
@@ -43,8 +49,22 @@ public class Node implements Comparable<Node> {
 	public Node(String name) {
 		this.name = name;
 		neighbors = new TreeMap<Node, List<String>>();
-		occupied = false;
-		hiding = false;
+		neighborView = Collections.unmodifiableCollection(neighbors.keySet());
+		rebuildArrays();
+	}
+
+	// helper method to refresh neighborArray and wayList
+	private void rebuildArrays() {
+		Node[] nodes = new Node[neighbors.size()];
+		List<List<String>> ways = new ArrayList<List<String>>(neighbors.size());
+		int i = 0;
+		for (Map.Entry<Node, List<String>> entry : neighbors.entrySet()) {
+			nodes[i] = entry.getKey();
+			ways.add(entry.getValue());
+			i++;
+		}
+		neighborArray = nodes;
+		wayList = ways;
 	}
 
 	private void put(Map<Node, List<String>> map, Node key, String value) {
@@ -68,16 +88,45 @@ public class Node implements Comparable<Node> {
 
 	/**
 	 * Return a collection of nodes that the current node is connected to by an
-	 * edge.
+	 * edge, sorted alphabetically by name.
+	 * 
+	 * The collection is a read-only view that is shared between calls, so
+	 * asking for it does not allocate anything.
 	 * 
-	 * @return retVal
+	 * @return neighborView
 	 */
 	public Collection<Node> getNeighbors() {
-		TreeSet<Node> retVal = new TreeSet<Node>();
-		for (Node n : neighbors.keySet()) {
-			retVal.add(n);
-		}
-		return retVal;
+		return neighborView;
+	}
+
+	/**
+	 * Return the number of nodes that the current node is connected to.
+	 * 
+	 * @return number of neighbors
+	 */
+	public int getNumOfNeighbors() {
+		return neighborArray.length;
+	}
+
+	/**
+	 * Return the i-th neighbor, in the same alphabetical order as
+	 * {@link #getNeighbors()}.
+	 * 
+	 * @param i
+	 * @return neighbor
+	 */
+	public Node getNeighbor(int i) {
+		return neighborArray[i];
+	}
+
+	/**
+	 * Return the types of transportation to the i-th neighbor.
+	 * 
+	 * @param i
+	 * @return list of ways
+	 */
+	public List<String> getWay(int i) {
+		return wayList.get(i);
 	}
 
 	/**
@@ -88,6 +137,7 @@ public class Node implements Comparable<Node> {
 	 */
 	public void addDirectedEdgeToNode(Node n, String type) {
 		put(neighbors, n, type);
+		rebuildArrays();
 	}
 
 	/**
@@ -116,6 +166,7 @@ public class Node implements Comparable<Node> {
 			neighbors.remove(n);
 		else
 			throw new IllegalStateException();
+		rebuildArrays();
 	}
 
 	/**
@@ -161,22 +212,6 @@ public class Node implements Comparable<Node> {
 		throw new IllegalStateException();
 	}
 
-	public boolean getOccupied() {
-		return occupied;
-	}
-
-	public void setOccupied(boolean b) {
-		occupied = b;
-	}
-
-	public boolean getHiding() {
-		return hiding;
-	}
-
-	public void setHiding(boolean b) {
-		hiding = b;
-	}
-
 	@Override
 	public int compareTo(Node o) {
 		// Nodes should be sorted alphabetically by their name
@@ -21,4 +21,14 @@ public interface NodeVisitor
      * @param node
      */
     public void visit(Node node);
+
+    /**
+     * Return true to stop the search after the node that was just visited.
+     * By default the search visits every node it can reach.
+     * 
+     * @return boolean
+     */
+    default boolean isDone() {
+        return false;
+    }
 }
@@ -0,0 +1,292 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Class to find cheapest paths and minimum spanning trees on a {@link Board}
+ * where each type of transportation has its own cost
+ *
+ * An edge with more than one type of transportation costs as much as the
+ * cheapest one that is allowed. Shortest paths from one node to all others
+ * are found by Dijkstra's algorithm, and the path between two nodes by A*
+ * when the nodes have coordinates: no edge costs less than the cheapest cost
+ * per unit of length of all edges times its straight-line length, so that
+ * times the straight-line distance to the target never overestimates the
+ * rest of the path. Minimum spanning trees are found by Prim-Jarnik's
+ * algorithm. All of them use an {@link IndexedHeap}.
+ *
+ * The buffers are kept between searches, so an instance must not be used by
+ * two threads at the same time.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class PathFinder {
+
+	// number of types of transportation, TAXI to BLACK
+	public static final int NUM_TRANSPORTS = 4;
+	// every type of transportation costs 1
+	public static final double[] UNIT_COSTS = { 1, 1, 1, 1 };
+
+	private final Board board;
+	// cost of an edge with the types of transportation of the index
+	private final double[] costOf = new double[Board.ALL + 1];
+	// coordinates of each node, or null
+	private final double[] x;
+	private final double[] y;
+	// cheapest cost per unit of length of the edges of each mask
+	private final double[] costPerLength = new double[Board.ALL + 1];
+
+	private final IndexedHeap heap;
+	// cost to each node found by the current A* search, valid if seen[id] is
+	// the number of the search
+	private final double[] cost;
+	private final int[] parent;
+	private final int[] seen;
+	private int search;
+
+	/**
+	 * Create a path finder for the given board.
+	 *
+	 * @param board
+	 * @param costs
+	 *            cost of TAXI, BUS, UNDERGROUND and BLACK (the ship), not
+	 *            negative
+	 * @param x
+	 *            x coordinate of each node by id, or null if the nodes have
+	 *            no coordinates
+	 * @param y
+	 *            y coordinate of each node by id, or null
+	 * @throws IllegalArgumentException
+	 *             if a cost is negative or the coordinates are too short
+	 */
+	public PathFinder(Board board, double[] costs, double[] x, double[] y) {
+		if (costs.length != NUM_TRANSPORTS)
+			throw new IllegalArgumentException("need " + NUM_TRANSPORTS + " costs: " + costs.length);
+		for (double c : costs) {
+			if (!(c >= 0))
+				throw new IllegalArgumentException("cost must not be negative: " + c);
+		}
+		if ((x == null) != (y == null) || (x != null && (x.length <= board.getNumOfNodes() || y.length <= board
+				.getNumOfNodes())))
+			throw new IllegalArgumentException("need a coordinate for every node");
+		this.board = board;
+		this.x = x;
+		this.y = y;
+		for (int mask = 1; mask <= Board.ALL; mask++) {
+			double min = Double.POSITIVE_INFINITY;
+			for (int bit = 0; bit < NUM_TRANSPORTS; bit++) {
+				if ((mask & (1 << bit)) != 0)
+					min = Math.min(min, costs[bit]);
+			}
+			costOf[mask] = min;
+		}
+		costOf[0] = Double.POSITIVE_INFINITY;
+
+		if (x != null) {
+			Arrays.fill(costPerLength, Double.POSITIVE_INFINITY);
+			for (int id = 1; id <= board.getNumOfNodes(); id++) {
+				for (int e = board.edgeStart(id); e < board.edgeEnd(id); e++) {
+					double length = length(id, board.target(e));
+					// an edge of no length puts no limit on the heuristic
+					if (length == 0)
+						continue;
+					for (int mask = 1; mask <= Board.ALL; mask++) {
+						int allowed = board.transport(e) & mask;
+						if (allowed != 0)
+							costPerLength[mask] = Math.min(costPerLength[mask], costOf[allowed] / length);
+					}
+				}
+			}
+			// no edge can be used with an empty mask, so there is no limit
+			// either, and INF times a length of 0 would be NaN
+			for (int mask = 0; mask <= Board.ALL; mask++) {
+				if (costPerLength[mask] == Double.POSITIVE_INFINITY)
+					costPerLength[mask] = 0;
+			}
+		}
+
+		heap = new IndexedHeap(board.getNumOfNodes() + 1);
+		cost = new double[board.getNumOfNodes() + 1];
+		parent = new int[board.getNumOfNodes() + 1];
+		seen = new int[board.getNumOfNodes() + 1];
+	}
+
+	/**
+	 * Return the cost of edge e using one of the given types of
+	 * transportation, or infinity if none of them goes along the edge.
+	 *
+	 * @param e
+	 * @param transports
+	 * @return cost
+	 */
+	public double edgeCost(int e, int transports) {
+		return costOf[board.transport(e) & transports & Board.ALL];
+	}
+
+	/**
+	 * Find the cheapest paths from the source to every node (Dijkstra's
+	 * algorithm).
+	 *
+	 * @param source
+	 * @param transports
+	 *            bitmask of {@link Board} transport bits to use
+	 * @param dist
+	 *            array of at least {@link Board#getNumOfNodes()} + 1 doubles
+	 *            to fill with the cost to each node, or infinity if it cannot
+	 *            be reached
+	 * @param parent
+	 *            null, or array to fill with the node before each node on its
+	 *            path, or 0 for the source and nodes not reached
+	 * @return number of nodes reached
+	 */
+	public int shortestPaths(int source, int transports, double[] dist, int[] parent) {
+		Arrays.fill(dist, 0, board.getNumOfNodes() + 1, Double.POSITIVE_INFINITY);
+		if (parent != null)
+			Arrays.fill(parent, 0, board.getNumOfNodes() + 1, 0);
+		heap.clear();
+		dist[source] = 0;
+		heap.offer(source, 0);
+		int retVal = 0;
+		while (!heap.isEmpty()) {
+			int current = heap.poll();
+			retVal++;
+			for (int e = board.edgeStart(current); e < board.edgeEnd(current); e++) {
+				double c = dist[current] + edgeCost(e, transports);
+				int next = board.target(e);
+				if (c < dist[next]) {
+					dist[next] = c;
+					if (parent != null)
+						parent[next] = current;
+					heap.offer(next, c);
+				}
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Return the cost of the cheapest path from the source to the target, or
+	 * infinity if there is none (A* search).
+	 *
+	 * @param source
+	 * @param target
+	 * @param transports
+	 *            bitmask of {@link Board} transport bits to use
+	 * @return cost
+	 */
+	public double distance(int source, int target, int transports) {
+		return aStar(source, target, transports);
+	}
+
+	/**
+	 * Return the nodes of the cheapest path from the source to the target,
+	 * both included, or null if there is none (A* search).
+	 *
+	 * @param source
+	 * @param target
+	 * @param transports
+	 *            bitmask of {@link Board} transport bits to use
+	 * @return ids of the nodes on the path
+	 */
+	public int[] shortestPath(int source, int target, int transports) {
+		if (aStar(source, target, transports) == Double.POSITIVE_INFINITY)
+			return null;
+		int length = 1;
+		for (int id = target; id != source; id = parent[id]) {
+			length++;
+		}
+		int[] retVal = new int[length];
+		for (int id = target, i = length - 1; i >= 0; id = parent[id], i--) {
+			retVal[i] = id;
+		}
+		return retVal;
+	}
+
+	// helper method to run A* and return the cost to the target
+	private double aStar(int source, int target, int transports) {
+		int s = ++search;
+		heap.clear();
+		double ratio = x == null ? 0 : costPerLength[transports & Board.ALL];
+		seen[source] = s;
+		cost[source] = 0;
+		parent[source] = 0;
+		heap.offer(source, ratio * length(source, target));
+		while (!heap.isEmpty()) {
+			int current = heap.poll();
+			if (current == target)
+				return cost[target];
+			for (int e = board.edgeStart(current); e < board.edgeEnd(current); e++) {
+				double c = cost[current] + edgeCost(e, transports);
+				if (c == Double.POSITIVE_INFINITY)
+					continue;
+				int next = board.target(e);
+				if (seen[next] != s || c < cost[next]) {
+					seen[next] = s;
+					cost[next] = c;
+					parent[next] = current;
+					heap.offer(next, c + ratio * length(next, target));
+				}
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Find a minimum spanning tree of each connected part of the board
+	 * (Prim-Jarnik's algorithm), using the given types of transportation.
+	 *
+	 * @param transports
+	 *            bitmask of {@link Board} transport bits to use
+	 * @param parent
+	 *            null, or array of at least {@link Board#getNumOfNodes()} + 1
+	 *            ints to fill with the parent of each node in its tree, or 0
+	 *            for the root of each tree
+	 * @return total cost of the edges of the trees
+	 */
+	public double minimumSpanningTree(int transports, int[] parent) {
+		int numNodes = board.getNumOfNodes();
+		double[] best = new double[numNodes + 1];
+		boolean[] inTree = new boolean[numNodes + 1];
+		Arrays.fill(best, Double.POSITIVE_INFINITY);
+		if (parent != null)
+			Arrays.fill(parent, 0, numNodes + 1, 0);
+		heap.clear();
+		double retVal = 0;
+		for (int root = 1; root <= numNodes; root++) {
+			if (inTree[root])
+				continue;
+			best[root] = 0;
+			heap.offer(root, 0);
+			while (!heap.isEmpty()) {
+				int current = heap.poll();
+				inTree[current] = true;
+				retVal += best[current];
+				for (int e = board.edgeStart(current); e < board.edgeEnd(current); e++) {
+					int next = board.target(e);
+					double c = edgeCost(e, transports);
+					if (!inTree[next] && c < best[next]) {
+						best[next] = c;
+						if (parent != null)
+							parent[next] = current;
+						heap.offer(next, c);
+					}
+				}
+			}
+		}
+		return retVal;
+	}
+
+	// helper method to get the straight-line distance between two nodes
+	private double length(int a, int b) {
+		if (x == null)
+			return 0;
+		return Math.hypot(x[a] - x[b], y[a] - y[b]);
+	}
+
+	// getter
+	public Board getBoard() {
+		return board;
+	}
+
+}
@@ -0,0 +1,64 @@
+package main;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import graph.Board;
+import graph.BoardFile;
+
+/**
+ * Class to convert the text files of a board into the binary format of
+ * {@link BoardFile}
+ *
+ * Usage: BoardConverter [map positions] output
+ *
+ * The map and the positions default to files/scotmap.txt and
+ * files/scotpos.txt. The binary file is loaded again and compared with the
+ * text files, and the time to load each of them is printed.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class BoardConverter {
+
+	public static void main(String[] args) throws Exception {
+		String map = args.length > 1 ? args[0] : "files/scotmap.txt";
+		String positions = args.length > 1 ? args[1] : "files/scotpos.txt";
+		Path output = Paths.get(args.length == 1 ? args[0] : args.length > 2 ? args[2] : "files/scotmap.bin");
+
+		long start = System.nanoTime();
+		BoardFile text = BoardFile.readText(map, positions);
+		long textNanos = System.nanoTime() - start;
+		text.write(output);
+
+		start = System.nanoTime();
+		BoardFile binary = BoardFile.read(output);
+		long binaryNanos = System.nanoTime() - start;
+		if (!same(text, binary))
+			throw new IllegalStateException("the saved board does not match " + map);
+
+		Board b = text.getBoard();
+		System.out.printf("%s: %d locations, %d edges, %d ways%n", output, b.getNumOfNodes(), b.getNumOfEdges(),
+				b.getNumOfAllWays());
+		System.out.printf("text %.3f ms, binary %.3f ms%n", textNanos / 1e6, binaryNanos / 1e6);
+	}
+
+	// helper method to compare two boards and their coordinates
+	private static boolean same(BoardFile a, BoardFile b) {
+		Board x = a.getBoard();
+		Board y = b.getBoard();
+		if (x.getNumOfNodes() != y.getNumOfNodes() || x.getNumOfEdges() != y.getNumOfEdges()
+				|| x.getNumOfAllWays() != y.getNumOfAllWays())
+			return false;
+		for (int id = 1; id <= x.getNumOfNodes(); id++) {
+			if (x.edgeStart(id) != y.edgeStart(id) || a.getX(id) != b.getX(id) || a.getY(id) != b.getY(id))
+				return false;
+		}
+		for (int e = 0; e < x.getNumOfEdges(); e++) {
+			if (x.target(e) != y.target(e) || x.transport(e) != y.transport(e))
+				return false;
+		}
+		return true;
+	}
+
+}
@@ -13,12 +13,17 @@ public class Main {
 
 	public final static boolean DEBUG = false;
 
-	// can be changed to Clever or Random
+	// can be changed to Clever, Random, MCTS or AlphaBeta
 	public final static MrXType MRXTYPE = MrXType.Random;
 
 	// inner enumerator
 	public enum MrXType {
-		Random, Clever
+		Random, Clever, MCTS, AlphaBeta
+	}
+
+	// brains for detectives in games without the frame (see main.Tournament)
+	public enum DetectiveType {
+		Random, MCTS, Assignment
 	}
 
 	public static void main(String[] args) throws Exception {
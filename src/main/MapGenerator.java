@@ -0,0 +1,218 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Class to make boards like the one of Scotland Yard of any size, for
+ * measuring how the game and the AIs scale
+ *
+ * Usage: MapGenerator stations seed map positions
+ *
+ * The stations are put on a square grid with some jitter. The taxi links are
+ * a random spanning tree of the grid, so that every station can be reached,
+ * with extra links to the right, below and across some of the squares. Every
+ * third station in both directions is a bus stop linked to the next stops, and
+ * every ninth one is an underground station, and a few links between far
+ * underground stations are ferries. The files are written in the formats of
+ * files/scotmap.txt and files/scotpos.txt (see
+ * {@link game.ScotlandYardGraph}), and the same arguments always make the same
+ * files.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class MapGenerator {
+
+	// pixels between two stations of the grid
+	private static final int SPACING = 24;
+	private static final int JITTER = 8;
+	// chances of the extra taxi links of each station
+	private static final double TAXI_RIGHT = 0.35;
+	private static final double TAXI_DOWN = 0.35;
+	private static final double TAXI_ACROSS = 0.1;
+	// every BUS_STRIDE-th station of the grid is a bus stop
+	private static final int BUS_STRIDE = 3;
+	private static final double BUS_LINK = 0.7;
+	private static final int UNDERGROUND_STRIDE = 9;
+	private static final double UNDERGROUND_LINK = 0.6;
+	// number of stations for each ferry link
+	private static final int STATIONS_PER_FERRY = 2000;
+
+	private final int numNodes;
+	private final int side;
+	private final long seed;
+	private final Random random;
+
+	private int[] from = new int[1024];
+	private int[] to = new int[1024];
+	private char[] type = new char[1024];
+	private int numLinks;
+
+	public MapGenerator(int numNodes, long seed) {
+		if (numNodes < 2)
+			throw new IllegalArgumentException("need at least 2 stations: " + numNodes);
+		this.numNodes = numNodes;
+		this.side = (int) Math.ceil(Math.sqrt(numNodes));
+		this.seed = seed;
+		this.random = new Random(seed);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int stations = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		String map = args.length > 2 ? args[2] : "files/genmap.txt";
+		String positions = args.length > 3 ? args[3] : "files/genpos.txt";
+
+		long start = System.nanoTime();
+		MapGenerator generator = new MapGenerator(stations, seed);
+		generator.generate();
+		generator.writeMap(map);
+		generator.writePositions(positions);
+		System.out.printf("%d stations, %d links in %.3f s%n", stations, generator.numLinks,
+				(System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Make the links of the board.
+	 */
+	public void generate() {
+		numLinks = 0;
+		// spanning tree: each station is linked to the station above or on its
+		// left, so that all of them are linked to the first one
+		boolean[] treeUp = new boolean[numNodes + 1];
+		for (int id = 2; id <= numNodes; id++) {
+			int up = id - side;
+			boolean hasLeft = column(id) > 0;
+			treeUp[id] = up >= 1 && (!hasLeft || random.nextBoolean());
+			if (treeUp[id])
+				add(id, up, 'T');
+			else
+				add(id, id - 1, 'T');
+		}
+		// extra links, but not the ones of the tree again
+		for (int id = 1; id <= numNodes; id++) {
+			boolean hasRight = column(id) < side - 1 && id + 1 <= numNodes;
+			boolean hasDown = id + side <= numNodes;
+			if (hasRight && random.nextDouble() < TAXI_RIGHT && treeUp[id + 1])
+				add(id, id + 1, 'T');
+			if (hasDown && random.nextDouble() < TAXI_DOWN && !treeUp[id + side])
+				add(id, id + side, 'T');
+			// only one diagonal of a square, so that taxi links do not cross
+			if (hasRight && hasDown && id + side + 1 <= numNodes && random.nextDouble() < TAXI_ACROSS)
+				add(id, id + side + 1, 'T');
+		}
+		overlay(BUS_STRIDE, BUS_LINK, 'B');
+		overlay(UNDERGROUND_STRIDE, UNDERGROUND_LINK, 'U');
+
+		// the bus and underground links are all different pairs, but two
+		// ferries can link the same stations
+		int stops = countStops(UNDERGROUND_STRIDE);
+		int ferries = Math.max(1, numNodes / STATIONS_PER_FERRY);
+		Set<Long> ferryLinks = new HashSet<Long>();
+		for (int i = 0; i < ferries && stops > 1; i++) {
+			int a = stop(random.nextInt(stops), UNDERGROUND_STRIDE);
+			int b = stop(random.nextInt(stops), UNDERGROUND_STRIDE);
+			if (a != b && ferryLinks.add((long) Math.min(a, b) << 32 | Math.max(a, b)))
+				add(a, b, 'S');
+		}
+	}
+
+	// helper method to link the stations of every stride-th row and column
+	// to the next ones in both directions
+	private void overlay(int stride, double chance, char t) {
+		for (int row = 0; row * side < numNodes; row += stride) {
+			for (int col = 0; col < side; col += stride) {
+				int id = row * side + col + 1;
+				if (id > numNodes)
+					break;
+				int right = id + stride;
+				int down = id + stride * side;
+				if (col + stride < side && right <= numNodes && random.nextDouble() < chance)
+					add(id, right, t);
+				if (down <= numNodes && random.nextDouble() < chance)
+					add(id, down, t);
+			}
+		}
+	}
+
+	// helper method to count the stations of every stride-th row and column
+	private int countStops(int stride) {
+		int count = 0;
+		while (stop(count, stride) <= numNodes) {
+			count++;
+		}
+		return count;
+	}
+
+	// helper method to find the i-th station of every stride-th row and column
+	private int stop(int i, int stride) {
+		int perRow = (side + stride - 1) / stride;
+		int row = (i / perRow) * stride;
+		int col = (i % perRow) * stride;
+		return row * side + col + 1;
+	}
+
+	private int column(int id) {
+		return (id - 1) % side;
+	}
+
+	private void add(int a, int b, char t) {
+		if (numLinks == from.length) {
+			from = Arrays.copyOf(from, numLinks * 2);
+			to = Arrays.copyOf(to, numLinks * 2);
+			type = Arrays.copyOf(type, numLinks * 2);
+		}
+		from[numLinks] = a;
+		to[numLinks] = b;
+		type[numLinks] = t;
+		numLinks++;
+	}
+
+	/**
+	 * Write the links in the format of files/scotmap.txt.
+	 *
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void writeMap(String filename) throws IOException {
+		try (Writer out = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+			out.write(numNodes + " " + numLinks + "\n");
+			for (int i = 0; i < numLinks; i++) {
+				out.write(from[i] + " " + to[i] + " " + type[i] + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Write the pixel coordinates of the stations in the format of
+	 * files/scotpos.txt.
+	 *
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void writePositions(String filename) throws IOException {
+		// a generator of its own, so that the positions do not change the links
+		Random jitter = new Random(~seed);
+		try (Writer out = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+			out.write(numNodes + "\n");
+			for (int id = 1; id <= numNodes; id++) {
+				int x = SPACING + column(id) * SPACING + jitter.nextInt(2 * JITTER + 1) - JITTER;
+				int y = SPACING + (id - 1) / side * SPACING + jitter.nextInt(2 * JITTER + 1) - JITTER;
+				out.write(id + " " + x + " " + y + "\n");
+			}
+		}
+	}
+
+	// getter
+	public int getNumOfLinks() {
+		return numLinks;
+	}
+
+}
@@ -0,0 +1,172 @@
+package main;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import game.GameMaster;
+import game.Move;
+import game.MoveList;
+import game.ScotlandYardGraph;
+
+/**
+ * Class to count every way a game can go on for a given number of turns, like
+ * "perft" of chess engines
+ *
+ * Usage: Perft depth [threads] [A B C D E MrX]
+ *
+ * The game starts on the given locations (or
+ * {@link GameMaster#defaultStartPoints()}) with the usual tickets, and MrX
+ * moves first. A turn is one move of one player, a double move of MrX counts
+ * as one turn, and a detective who cannot move passes. A game that is over
+ * before the last turn is not counted.
+ *
+ * The count is done once on one thread and once with the moves of the first
+ * turn split over the threads. The two counts have to be the same, and the
+ * number of positions per second of both is printed. Any change to the rules
+ * or the move generation should keep the counts of the same depth.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class Perft {
+
+	public static void main(String[] args) throws Exception {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int[] starts = GameMaster.defaultStartPoints();
+		if (args.length > 2) {
+			for (int i = 0; i < starts.length; i++) {
+				starts[i] = Integer.parseInt(args[2 + i]);
+			}
+		}
+		ScotlandYardGraph graph = new ScotlandYardGraph();
+
+		long start = System.nanoTime();
+		Counter single = new Counter();
+		GameMaster gm = newGame(graph, starts);
+		long leaves = perft(gm, depth, single);
+		report("1 thread", leaves, single, System.nanoTime() - start);
+
+		start = System.nanoTime();
+		Counter parallel = new Counter();
+		long parallelLeaves = divide(graph, starts, depth, threads, parallel);
+		report(threads + " threads", parallelLeaves, parallel, System.nanoTime() - start);
+
+		if (leaves != parallelLeaves)
+			throw new IllegalStateException("counts do not match: " + leaves + " " + parallelLeaves);
+	}
+
+	// helper method to print one count
+	private static void report(String name, long leaves, Counter c, long nanos) {
+		System.out.printf("%-10s leaves %d, games over %d, positions %d, %.3f s, %.0f positions/s%n", name, leaves,
+				c.ends, c.nodes, nanos / 1e9, c.nodes / (nanos / 1e9));
+	}
+
+	// helper method to set up a game on the start points
+	private static GameMaster newGame(ScotlandYardGraph graph, int[] starts) {
+		GameMaster gm = new GameMaster(graph, starts);
+		gm.gameStart();
+		return gm;
+	}
+
+	/**
+	 * Return the number of ways the game can go on for the given number of
+	 * turns. The game is back in the same state when this method returns.
+	 *
+	 * @param gm
+	 * @param depth
+	 * @return number of leaves
+	 */
+	public static long perft(GameMaster gm, int depth) {
+		return perft(gm, depth, new Counter());
+	}
+
+	private static long perft(GameMaster gm, int depth, Counter c) {
+		MoveList[] lists = new MoveList[depth + 1];
+		for (int i = 0; i <= depth; i++) {
+			lists[i] = new MoveList();
+		}
+		return perft(gm, depth, lists, c);
+	}
+
+	// recursive method
+	private static long perft(GameMaster gm, int depth, MoveList[] lists, Counter c) {
+		c.nodes++;
+		if (depth == 0)
+			return 1;
+		if (gm.checkWinner() != null) {
+			c.ends++;
+			return 0;
+		}
+		MoveList moves = lists[depth];
+		int n = gm.generateMoves(moves);
+		if (n == 0) {
+			gm.makePass();
+			long retVal = perft(gm, depth - 1, lists, c);
+			gm.unmakeMove();
+			return retVal;
+		}
+		long retVal = 0;
+		for (int i = 0; i < n; i++) {
+			gm.makeMove(moves.get(i));
+			retVal += perft(gm, depth - 1, lists, c);
+			gm.unmakeMove();
+		}
+		return retVal;
+	}
+
+	/**
+	 * Count like {@link #perft(GameMaster, int)} from the start points, with
+	 * each move of the first turn counted by its own game on one of the
+	 * threads.
+	 *
+	 * @param graph
+	 * @param starts
+	 * @param depth
+	 * @param threads
+	 * @return number of leaves
+	 */
+	public static long divide(ScotlandYardGraph graph, int[] starts, int depth, int threads) throws Exception {
+		return divide(graph, starts, depth, threads, new Counter());
+	}
+
+	private static long divide(ScotlandYardGraph graph, int[] starts, int depth, int threads, Counter total)
+			throws Exception {
+		GameMaster root = newGame(graph, starts);
+		MoveList moves = new MoveList();
+		if (depth == 0 || root.checkWinner() != null || root.generateMoves(moves) == 0)
+			return perft(root, depth, total);
+
+		Counter[] counters = new Counter[moves.size()];
+		long[] leaves = new long[moves.size()];
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.submit(() -> IntStream.range(0, moves.size()).parallel().forEach(i -> {
+				GameMaster gm = newGame(graph, starts);
+				gm.makeMove(moves.get(i));
+				counters[i] = new Counter();
+				leaves[i] = perft(gm, depth - 1, counters[i]);
+			})).get();
+		} finally {
+			pool.shutdown();
+		}
+
+		long retVal = 0;
+		total.nodes++;
+		for (int i = 0; i < moves.size(); i++) {
+			if (Main.DEBUG)
+				System.out.println(Move.toString(moves.get(i)) + ": " + leaves[i]);
+			total.nodes += counters[i].nodes;
+			total.ends += counters[i].ends;
+			retVal += leaves[i];
+		}
+		return retVal;
+	}
+
+	// number of positions visited and games that were over before the end
+	private static class Counter {
+		long nodes;
+		long ends;
+	}
+
+}
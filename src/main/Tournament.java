@@ -0,0 +1,258 @@
+package main;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ai.AI;
+import ai.AlphaBetaAI;
+import ai.MctsAI;
+import ai.MctsDetectiveAI;
+import game.Engine;
+import game.GameMaster;
+import game.ScotlandYardGraph;
+import main.Main.DetectiveType;
+import main.Main.MrXType;
+import player.Detective;
+import player.MrX;
+
+/**
+ * Class to play many games between every MrX brain and every detective brain
+ * without the frame, using all of the cores of the machine
+ *
+ * Usage: Tournament [games per match] [threads] [seed] [games per search match]
+ *
+ * For every match it prints the win rate of MrX and the average number of
+ * rounds, each with a 95% confidence interval. The same seed always gives the
+ * same results, whatever the number of threads.
+ *
+ * Matches with a search brain (see {@link #isSearch(MrXType)}) play fewer
+ * games, 0 to leave them out. Those brains search on the thread of their game
+ * with a fixed number of iterations or a fixed depth and no time limit, so
+ * that the results do not depend on how busy the machine is.
+ *
+ * @author Shogo Akiyama
+ *
+ */
+public class Tournament {
+
+	// number of games a task plays by itself instead of splitting, and the
+	// same for the slow games of a search brain
+	private static final int CHUNK = 64;
+	private static final int SEARCH_CHUNK = 1;
+	// default number of games of a match with a search brain
+	private static final int SEARCH_GAMES = 100;
+	// iterations of one move of an MCTS brain
+	private static final int MCTS_ITERATIONS = 500;
+	// iterations of one move of an MCTS brain of a detective, who moves five
+	// times a round
+	private static final int MCTS_DETECTIVE_ITERATIONS = 200;
+	// turns searched for one move of an alpha-beta brain, one round
+	private static final int ALPHA_BETA_DEPTH = 6;
+	// entries of the transposition table of an alpha-beta brain
+	private static final int ALPHA_BETA_TABLE_SIZE = 1 << 16;
+
+	public static void main(String[] args) throws Exception {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+		int searchGames = args.length > 3 ? Integer.parseInt(args[3]) : Math.min(games, SEARCH_GAMES);
+
+		// the graph never changes, so all of the games share it
+		ScotlandYardGraph graph = new ScotlandYardGraph();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		System.out.printf("%d games per match (%d with a search brain) on %d threads, seed %d%n", games,
+				searchGames, threads, seed);
+		System.out.printf("%-8s %-10s %22s %22s %10s%n", "MrX", "Detective", "MrX win rate", "rounds", "games/s");
+		for (MrXType mrxType : MrXType.values()) {
+			for (DetectiveType detectiveType : DetectiveType.values()) {
+				int n = isSearch(mrxType) || isSearch(detectiveType) ? searchGames : games;
+				if (n == 0)
+					continue;
+				long start = System.nanoTime();
+				int chunk = n == games ? CHUNK : SEARCH_CHUNK;
+				Result r = pool.invoke(new Match(graph, mrxType, detectiveType, seed, chunk, 0, n));
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.printf("%-8s %-10s %6.3f [%6.3f, %6.3f] %6.2f [%6.2f, %6.2f] %10.0f%n", mrxType,
+						detectiveType, r.winRate(), r.winRateLower(), r.winRateUpper(), r.meanRounds(),
+						r.meanRounds() - r.roundsMargin(), r.meanRounds() + r.roundsMargin(), r.games / seconds);
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Play one game and return its result.
+	 *
+	 * @param graph
+	 * @param mrxType
+	 * @param detectiveType
+	 * @param seed
+	 *            seed of the game
+	 * @return result
+	 * @throws Exception
+	 */
+	public static Result playGame(ScotlandYardGraph graph, MrXType mrxType, DetectiveType detectiveType, long seed)
+			throws Exception {
+		Random random = new Random(seed);
+		Engine engine = new Engine(graph, m -> createBrain(mrxType, m, random),
+				d -> createBrain(detectiveType, d, random));
+		GameMaster gm = engine.play(random);
+		Result r = new Result();
+		r.add(gm.checkWinner() instanceof MrX, gm.getMrx().getTravelLog().size());
+		return r;
+	}
+
+	/**
+	 * Return true if the brain of the given type searches ahead, so that its
+	 * games are slow, and false otherwise.
+	 *
+	 * @param type
+	 * @return boolean
+	 */
+	public static boolean isSearch(MrXType type) {
+		return type == MrXType.MCTS || type == MrXType.AlphaBeta;
+	}
+
+	public static boolean isSearch(DetectiveType type) {
+		return type == DetectiveType.MCTS;
+	}
+
+	// helper method to create a brain for MrX which does the same with the
+	// same random numbers, using only the thread of its game
+	private static AI createBrain(MrXType type, MrX mrx, Random random) {
+		if (type == MrXType.MCTS)
+			return new MctsAI(mrx, MctsAI.NO_TIME_LIMIT, MCTS_ITERATIONS, 1, random);
+		if (type == MrXType.AlphaBeta)
+			return new AlphaBetaAI(mrx, MctsAI.NO_TIME_LIMIT, ALPHA_BETA_DEPTH, ALPHA_BETA_TABLE_SIZE);
+		return MrX.createBrain(type, mrx, random);
+	}
+
+	// helper method to create a brain for a detective like the one for MrX
+	private static AI createBrain(DetectiveType type, Detective d, Random random) {
+		if (type == DetectiveType.MCTS)
+			return new MctsDetectiveAI(d, MctsAI.NO_TIME_LIMIT, MCTS_DETECTIVE_ITERATIONS, 1, random);
+		return Detective.createBrain(type, d, random);
+	}
+
+	// task to play the games from first (inclusive) to last (exclusive)
+	@SuppressWarnings("serial")
+	private static class Match extends RecursiveTask<Result> {
+		private final ScotlandYardGraph graph;
+		private final MrXType mrxType;
+		private final DetectiveType detectiveType;
+		private final long seed;
+		private final int chunk;
+		private final int first;
+		private final int last;
+
+		Match(ScotlandYardGraph graph, MrXType mrxType, DetectiveType detectiveType, long seed, int chunk, int first,
+				int last) {
+			this.graph = graph;
+			this.mrxType = mrxType;
+			this.detectiveType = detectiveType;
+			this.seed = seed;
+			this.chunk = chunk;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected Result compute() {
+			if (last - first > chunk) {
+				int middle = (first + last) >>> 1;
+				Match left = new Match(graph, mrxType, detectiveType, seed, chunk, first, middle);
+				left.fork();
+				Result r = new Match(graph, mrxType, detectiveType, seed, chunk, middle, last).compute();
+				r.merge(left.join());
+				return r;
+			}
+			Result r = new Result();
+			for (int i = first; i < last; i++) {
+				try {
+					r.merge(playGame(graph, mrxType, detectiveType, seed * 1000003 + i));
+				} catch (Exception e) {
+					throw new IllegalStateException("game " + i + " failed", e);
+				}
+			}
+			return r;
+		}
+	}
+
+	/**
+	 * Class to sum up the results of games
+	 *
+	 * @author Shogo Akiyama
+	 *
+	 */
+	public static class Result {
+		// z value of a 95% confidence interval
+		private static final double Z = 1.959964;
+
+		private long games;
+		private long mrxWins;
+		private long rounds;
+		private long squaredRounds;
+
+		public void add(boolean mrxWon, int numOfRounds) {
+			games++;
+			if (mrxWon)
+				mrxWins++;
+			rounds += numOfRounds;
+			squaredRounds += (long) numOfRounds * numOfRounds;
+		}
+
+		public void merge(Result other) {
+			games += other.games;
+			mrxWins += other.mrxWins;
+			rounds += other.rounds;
+			squaredRounds += other.squaredRounds;
+		}
+
+		public long getGames() {
+			return games;
+		}
+
+		public long getMrXWins() {
+			return mrxWins;
+		}
+
+		public double winRate() {
+			return games == 0 ? 0 : (double) mrxWins / games;
+		}
+
+		// lower end of the Wilson score interval of the win rate
+		public double winRateLower() {
+			return wilson(-1);
+		}
+
+		// upper end of the Wilson score interval of the win rate
+		public double winRateUpper() {
+			return wilson(1);
+		}
+
+		private double wilson(int sign) {
+			if (games == 0)
+				return 0;
+			double p = winRate();
+			double z2 = Z * Z / games;
+			double center = p + z2 / 2;
+			double margin = Z * Math.sqrt(p * (1 - p) / games + z2 / (4 * games));
+			return (center + sign * margin) / (1 + z2);
+		}
+
+		public double meanRounds() {
+			return games == 0 ? 0 : (double) rounds / games;
+		}
+
+		// half width of the confidence interval of the mean number of rounds
+		public double roundsMargin() {
+			if (games < 2)
+				return 0;
+			double mean = meanRounds();
+			double variance = (squaredRounds - games * mean * mean) / (games - 1);
+			return Z * Math.sqrt(Math.max(variance, 0) / games);
+		}
+	}
+
+}
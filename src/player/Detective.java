@@ -1,40 +1,107 @@
 package player;
 
 import java.util.Map;
+import java.util.Random;
 
+import ai.AI;
+import ai.AssignmentDetectiveAI;
+import ai.MctsDetectiveAI;
+import ai.RandomDetectiveAI;
+import game.BoardState;
+import game.GameMaster;
 import graph.Node;
+import main.Main;
 
 /**
  * Class to represent a detective who is seeking Mr.X
  * Inherit from Person class
  * 
- * It gets the information where to move by the user
+ * It gets the information where to move by the user, or by its brain if
+ * it has one
  * 
  * @author Shogo Akiyama
  *
  */
 public class Detective extends Person{
+	protected AI brain;
 
-	public Detective(String s, Node startPoint, Map<Ticket, Integer> initialTickets) {
-		super(s, startPoint, initialTickets);
-		position.setOccupied(true);
+	public Detective(String s, BoardState state, int index, int startPoint, Map<Ticket, Integer> initialTickets) {
+		super(s, state, index, startPoint, initialTickets);
+	}
+
+	/**
+	 * Create a copy of the given detective, without a brain, that plays in
+	 * the given copy of his state.
+	 * 
+	 * @param other
+	 * @param state
+	 */
+	public Detective(Detective other, BoardState state) {
+		super(other, state);
+	}
+
+	/**
+	 * Create the brain of the given type for the given detective, which makes
+	 * its random choices with the given random number generator.
+	 * 
+	 * @param type
+	 * @param d
+	 * @param random
+	 * @return brain
+	 */
+	public static AI createBrain(Main.DetectiveType type, Detective d, Random random) {
+		switch (type) {
+		case Random:
+			return new RandomDetectiveAI(d, random);
+
+		case MCTS:
+			return new MctsDetectiveAI(d, random);
+
+		case Assignment:
+			return new AssignmentDetectiveAI(d);
+		}
+		throw new IllegalArgumentException("unknown type: " + type);
+	}
+
+	public void setBrain(AI brain) {
+		this.brain = brain;
+	}
+
+	public boolean hasBrain() {
+		return brain != null;
+	}
+
+	public void seeTheBoard(GameMaster g) {
+		if (brain == null)
+			throw new IllegalStateException("detective " + name + " is moved by the user");
+		brain.update(g);
+	}
+
+	public void move() throws Exception {
+		if (brain == null)
+			throw new IllegalStateException("detective " + name + " is moved by the user");
+		if (this.isStuck())
+			throw new Exception();
+		brain.decide();
 	}
 	
 	public void moveTo(Node next, Ticket t, MrX m) {
+		moveTo(state.getGraph().idOf(next), t, m);
+	}
+
+	public void moveTo(int next, Ticket t, MrX m) {
 		//precondition
-		if(!position.getNeighbors().contains(next)){
+		if(!state.getBoard().hasEdge(state.getPosition(index), next)){
 			System.out.println("error: the moving node is not connected to current node");
 			return;
 		}
 		
 		// use a ticket and give it to MrX
-		tickets.put(t, tickets.get(t)-1);
+		state.addTicket(index, t, -1);
 		m.receiveTicket(t);
 		
 		//change the position from current node to next node
-		position.setOccupied(false);
-		position=next;
-		position.setOccupied(true);
+		state.setPosition(index, next);
 	}
 	
 }
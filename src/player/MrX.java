@@ -1,11 +1,16 @@
 package player;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import ai.*;
+import game.BoardState;
 import game.GameMaster;
+import game.Move;
+import game.MoveGenerator;
 import graph.Node;
 import main.Main;
 
@@ -20,47 +25,144 @@ import main.Main;
 public class MrX extends Person {
 	protected List<Ticket> travelLog;
 	protected AI brain;
+	// location of this mrx right after each ticket of the travel log, where
+	// path[0] is where he started
+	private int[] path = new int[32];
 
-	public MrX(String s, Node startPoint, Map<Ticket, Integer> initialTickets) {
-		super(s, startPoint, initialTickets);
-		position.setHiding(true);
+	public MrX(String s, BoardState state, int startPoint, Map<Ticket, Integer> initialTickets) {
+		super(s, state, BoardState.MRX, startPoint, initialTickets);
 		travelLog = new ArrayList<Ticket>();
+		path[0] = startPoint;
+	}
+
+	/**
+	 * Create a copy of the given mrx, with the same travel log but without a
+	 * brain, that plays in the given copy of his state.
+	 * 
+	 * @param other
+	 * @param state
+	 */
+	public MrX(MrX other, BoardState state) {
+		super(other, state);
+		travelLog = new ArrayList<Ticket>(other.travelLog);
+		path = other.path.clone();
+	}
+
+	/**
+	 * Create the brain of the given type for the given mrx.
+	 * 
+	 * @param type
+	 * @param mrx
+	 * @return brain
+	 */
+	public static AI createBrain(Main.MrXType type, MrX mrx) {
+		return createBrain(type, mrx, new Random());
+	}
 
-		// decide which brain this mrx equips based on Main.MRXTYPE
-		switch (Main.MRXTYPE) {
+	/**
+	 * Create the brain of the given type for the given mrx, which makes its
+	 * random choices with the given random number generator.
+	 * 
+	 * @param type
+	 * @param mrx
+	 * @param random
+	 * @return brain
+	 */
+	public static AI createBrain(Main.MrXType type, MrX mrx, Random random) {
+		switch (type) {
 		case Clever:
-			brain = new CleverAI(this);
-			break;
-			
+			return new CleverAI(mrx, random);
+
 		case Random:
-			brain = new RandomAI(this);
-			break;
+			return new RandomAI(mrx, random);
+
+		case MCTS:
+			return new MctsAI(mrx, random);
+
+		case AlphaBeta:
+			return new AlphaBetaAI(mrx);
 		}
+		throw new IllegalArgumentException("unknown type: " + type);
 	}
 
+	/**
+	 * Replace the brain that decides where this mrx goes.
+	 * 
+	 * @param brain
+	 */
+	public void setBrain(AI brain) {
+		this.brain = brain;
+	}
+
+	/**
+	 * Use a double move card. The two moves that follow are made with
+	 * {@link #useTicket(Ticket)} and {@link #changePosition(int)} as usual.
+	 */
 	public void useDoubleLoop() {
-		
+		state.addTicket(index, Ticket.DOUBLE, -1);
+	}
+
+	/**
+	 * Make a packed move (see {@link Move}) chosen from
+	 * {@link MoveGenerator}, including double moves.
+	 * 
+	 * @param move
+	 */
+	public void play(long move) {
+		if (Move.isDouble(move)) {
+			useDoubleLoop();
+			useTicket(Move.firstTicket(move));
+			changePosition(Move.firstDestination(move));
+			useTicket(Move.secondTicket(move));
+			changePosition(Move.secondDestination(move));
+		} else {
+			useTicket(Move.firstTicket(move));
+			changePosition(Move.firstDestination(move));
+		}
 	}
 
 	public void move() throws Exception {
-		if(this.possibleMoves().size()==0)
+		if (brain == null)
+			throw new IllegalStateException("mrx " + name + " has no brain");
+		if(this.isStuck())
 			throw new Exception();
 		brain.decide();
 	}
 
 	public void changePosition(Node next) {
-		position.setHiding(false);
-		position = next;
-		position.setHiding(true);
+		changePosition(state.getGraph().idOf(next));
+	}
+
+	public void changePosition(int next) {
+		state.setPosition(index, next);
+		int moves = travelLog.size();
+		if (moves == path.length)
+			path = Arrays.copyOf(path, moves * 2);
+		path[moves] = next;
+	}
+
+	/**
+	 * Return the location where this mrx was right after using the given
+	 * number of tickets of his travel log.
+	 * 
+	 * @param numOfMoves
+	 * @return location id
+	 * @throws IllegalArgumentException
+	 *             if the travel log does not have that many tickets
+	 */
+	public int getPositionAfter(int numOfMoves) {
+		if (numOfMoves < 0 || numOfMoves > travelLog.size())
+			throw new IllegalArgumentException("no such move in the travel log: " + numOfMoves);
+		return path[numOfMoves];
 	}
 
 	public void useTicket(Ticket t) {
 		travelLog.add(t);
-		tickets.put(t, tickets.get(t) - 1);
+		state.addTicket(index, t, -1);
 	}
 
 	public void receiveTicket(Ticket t) {
-		tickets.put(t, tickets.get(t) + 1);
+		state.addTicket(index, t, 1);
 	}
 
 	public List<Ticket> getTravelLog() {
@@ -68,6 +170,8 @@ public class MrX extends Person {
 	}
 
 	public void seeTheBoard(GameMaster g) {
+		if (brain == null)
+			throw new IllegalStateException("mrx " + name + " has no brain");
 		brain.update(g);
 	}
 }
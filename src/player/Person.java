@@ -1,72 +1,128 @@
 package player;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 
+import game.BoardState;
+import graph.Board;
 import graph.Node;
 
 /**
  * Abstract Class to represent a Person
  * Extended by Detective class and Mr.X class
- * 
- * This class has all the methods related to tickets and the player position
- * 
+ *
+ * This class has all the methods related to tickets and the player position.
+ * Both are kept in the {@link BoardState} of the game, so a Person is only a
+ * view of one player of that state.
+ *
  * @author Shogo Akiyama
  *
  */
 public abstract class Person {
 	protected String name;
-	protected Node position;
-	protected Map<Ticket, Integer> tickets;
+	protected final BoardState state;
+	// index of this person in the state
+	protected final int index;
+	// possible moves, kept until the version of the moves in the state
+	// changes
+	private Set<Node> moves;
+	private long movesVersion;
 
 	// inner enum
+	// the first four are in the same order as the transport bits of Board
 	public enum Ticket {
 		TAXI, BUS, UNDERGROUND, BLACK, DOUBLE,
 	}
 
-	public Person(String s, Node startPoint, Map<Ticket, Integer> initialTickets) {
+	public Person(String s, BoardState state, int index, int startPoint, Map<Ticket, Integer> initialTickets) {
 		name = s;
-		position = startPoint;
-		tickets = initialTickets;
+		this.state = state;
+		this.index = index;
+		state.setPosition(index, startPoint);
+		for (Entry<Ticket, Integer> entry : initialTickets.entrySet()) {
+			state.setTicket(index, entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Create a copy of the given person that plays in the given state, which
+	 * should be a copy of the state of the person.
+	 * 
+	 * @param other
+	 * @param state
+	 */
+	protected Person(Person other, BoardState state) {
+		name = other.name;
+		this.state = state;
+		index = other.index;
 	}
 
+	/**
+	 * Return the locations this person can move to with the tickets he has,
+	 * which are not occupied by a detective. The set is made again only when
+	 * the version of the moves in the state (see
+	 * {@link BoardState#getMovesVersion(int)}) changes, so it cannot be
+	 * changed and calling this method again is free.
+	 * 
+	 * @return possible moves
+	 */
 	public Set<Node> possibleMoves() {
+		long version = state.getMovesVersion(index);
+		if (moves == null || movesVersion != version) {
+			moves = Collections.unmodifiableSet(findMoves());
+			movesVersion = version;
+		}
+		return moves;
+	}
+
+	// helper method to make the set of possible moves
+	private Set<Node> findMoves() {
 		Set<Node> retVal = new TreeSet<Node>();
-		for (Node next : position.getNeighbors()) {
-			for (String way : position.getWay(next)) {
-				if (next.getOccupied())
-					continue;
-				// test
-				// System.out.println(next.getName() + " " + way + " " +
-				// hasTicket(Ticket.valueOf(way)));
-				if (!hasTicket(Ticket.valueOf(way)))
-					continue;
-				retVal.add(next);
-			}
+		Board board = state.getBoard();
+		int position = state.getPosition(index);
+		int transports = state.transportsFor(index);
+		for (int e = board.edgeStart(position); e < board.edgeEnd(position); e++) {
+			int next = board.target(e);
+			if (state.isOccupied(next))
+				continue;
+			if ((board.transport(e) & transports) == 0)
+				continue;
+			retVal.add(state.getGraph().getNode(next));
 		}
 		return retVal;
 	}
 
+	/**
+	 * Return true if this person cannot move anywhere, and false otherwise.
+	 * It is kept up to date by the state, so it takes constant time.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isStuck() {
+		return state.isStuck(index);
+	}
+
 	public void showLeftTickets() {
-		for (Entry<Ticket, Integer> entry : tickets.entrySet()) {
+		for (Ticket t : Ticket.values()) {
 			if (this instanceof Detective)
-				if (entry.getKey() == Ticket.BLACK || entry.getKey() == Ticket.DOUBLE)
+				if (t == Ticket.BLACK || t == Ticket.DOUBLE)
 					continue;
 
-			System.out.printf("%-12s %2d" + "\n", entry.getKey(), entry.getValue());
+			System.out.printf("%-12s %2d" + "\n", t, getNumTicket(t));
 		}
 	}
 
 	public boolean hasTicket(Ticket t) {
-		if (tickets.get(t) >= 1)
+		if (state.getTicket(index, t) >= 1)
 			return true;
 		return false;
 	}
 
 	public int getNumTicket(Ticket t) {
-		return tickets.get(t);
+		return state.getTicket(index, t);
 	}
 
 	public String getName() {
@@ -74,6 +130,30 @@ public abstract class Person {
 	}
 
 	public Node getPosition() {
-		return position;
+		return state.getGraph().getNode(state.getPosition(index));
+	}
+
+	/**
+	 * getter
+	 * @return the location id of this person on the board
+	 */
+	public int getPositionId() {
+		return state.getPosition(index);
+	}
+
+	/**
+	 * getter
+	 * @return the index of this person in the state of the game
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * getter
+	 * @return the state of the game this person plays in
+	 */
+	public BoardState getState() {
+		return state;
 	}
 }